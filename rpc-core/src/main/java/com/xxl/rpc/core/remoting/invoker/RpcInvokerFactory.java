@@ -2,16 +2,26 @@ package com.xxl.rpc.core.remoting.invoker;
 
 import com.xxl.rpc.core.registry.Register;
 import com.xxl.rpc.core.registry.impl.LocalRegister;
+import com.xxl.rpc.core.remoting.invoker.call.RpcInvokeCallback;
+import com.xxl.rpc.core.remoting.invoker.reference.RpcReferenceBean;
+import com.xxl.rpc.core.remoting.net.common.TransportMetrics;
 import com.xxl.rpc.core.remoting.net.params.BaseCallback;
 import com.xxl.rpc.core.remoting.net.params.RpcFutureResponse;
 import com.xxl.rpc.core.remoting.net.params.RpcResponse;
+import com.xxl.rpc.core.util.CgroupUtil;
 import com.xxl.rpc.core.util.RpcException;
+import com.xxl.rpc.core.util.StripedLongMap;
+import com.xxl.rpc.core.util.ThreadPoolUtil;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * rpc invoker factory, init service-registry
@@ -72,6 +82,8 @@ public class RpcInvokerFactory {
 
         // stop CallbackThreadPool
         stopCallbackThreadPool();
+        stopResponseDecodeThreadPool();
+        stopTimeoutTimer();
     }
 
 
@@ -96,19 +108,52 @@ public class RpcInvokerFactory {
 
     // RpcFutureResponseFactory
 
-    private ConcurrentMap<String, RpcFutureResponse> futureResponsePool = new ConcurrentHashMap<String, RpcFutureResponse>();
-    public void setInvokerFuture(String requestId, RpcFutureResponse futureResponse){
+    private static final long TIMEOUT_TICK = 10;
+    private static final int TIMEOUT_WHEEL_SIZE = 512;
+
+    private final AtomicLong requestIdGenerator = new AtomicLong();
+    private final StripedLongMap<RpcFutureResponse> futureResponsePool = new StripedLongMap<RpcFutureResponse>();
+
+    /**
+     * request id, monotonic and unique within factory (so within every connection of it), start from 1
+     */
+    public long nextRequestId(){
+        return requestIdGenerator.incrementAndGet();
+    }
+
+    public void setInvokerFuture(long requestId, RpcFutureResponse futureResponse){
         futureResponsePool.put(requestId, futureResponse);
     }
-    public void removeInvokerFuture(String requestId){
-        futureResponsePool.remove(requestId);
+    public void removeInvokerFuture(long requestId){
+        RpcFutureResponse futureResponse = futureResponsePool.remove(requestId);
+        if (futureResponse != null) {
+            futureResponse.releaseConnectClient();
+        }
     }
-    public void notifyInvokerFuture(String requestId, final RpcResponse xxlRpcResponse){
+    public RpcFutureResponse getInvokerFuture(long requestId){
+        return futureResponsePool.get(requestId);
+    }
+    /**
+     * complete pending request by response (or timeout), once; false if not pending (already done, cancelled, or unknown)
+     */
+    public boolean notifyInvokerFuture(long requestId, final RpcResponse xxlRpcResponse){
 
-        // get
-        final RpcFutureResponse futureResponse = futureResponsePool.get(requestId);
+        // get and remove
+        final RpcFutureResponse futureResponse = futureResponsePool.remove(requestId);
         if (futureResponse == null) {
-            return;
+            return false;
+        }
+        futureResponse.releaseConnectClient();
+        futureResponse.cancelTimeout();
+
+        // completable future, complete on this thread
+        if (futureResponse.getCompletableFuture() != null) {
+            if (xxlRpcResponse.getErrorMsg() != null) {
+                futureResponse.getCompletableFuture().completeExceptionally(new RpcException(xxlRpcResponse.getErrorMsg()));
+            } else {
+                futureResponse.getCompletableFuture().complete(xxlRpcResponse.getResult());
+            }
+            return true;
         }
 
         // notify
@@ -119,10 +164,12 @@ public class RpcInvokerFactory {
                 executeResponseCallback(new Runnable() {
                     @Override
                     public void run() {
+                        @SuppressWarnings("unchecked")      // result typed by the invoked method, as the callback declared
+                        RpcInvokeCallback<Object> invokeCallback = (RpcInvokeCallback<Object>) futureResponse.getInvokeCallback();
                         if (xxlRpcResponse.getErrorMsg() != null) {
-                            futureResponse.getInvokeCallback().onFailure(new RpcException(xxlRpcResponse.getErrorMsg()));
+                            invokeCallback.onFailure(new RpcException(xxlRpcResponse.getErrorMsg()));
                         } else {
-                            futureResponse.getInvokeCallback().onSuccess(xxlRpcResponse.getResult());
+                            invokeCallback.onSuccess(xxlRpcResponse.getResult());
                         }
                     }
                 });
@@ -134,10 +181,58 @@ public class RpcInvokerFactory {
             // other nomal type
             futureResponse.setResponse(xxlRpcResponse);
         }
+        return true;
+    }
 
-        // do remove
-        futureResponsePool.remove(requestId);
+    /**
+     * requests pending response
+     */
+    public int getPendingCount() {
+        return futureResponsePool.size();
+    }
+
+
+    // ---------------------- request timeout ----------------------
+
+    private volatile HashedWheelTimer timeoutTimer = null;
 
+    /**
+     * expire the request at its deadline, if no response until then: completed with timeout response (callback onFailure,
+     * future get fails) and removed from pending pool; for requests nobody waits on (FUTURE, CALLBACK, completable future)
+     *
+     *      hashed wheel, tick TIMEOUT_TICK: add and cancel O(1), expired late by at most one tick;
+     */
+    public void scheduleTimeout(final RpcFutureResponse futureResponse, long timeoutMillis) {
+        if (timeoutTimer == null) {
+            synchronized (this) {
+                if (timeoutTimer == null) {
+                    timeoutTimer = new HashedWheelTimer(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "rpc, RpcInvokerFactory-timeoutTimer-" + r.hashCode());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    }, TIMEOUT_TICK, TimeUnit.MILLISECONDS, TIMEOUT_WHEEL_SIZE);
+                }
+            }
+        }
+        futureResponse.setTimeout(timeoutTimer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                RpcResponse xxlRpcResponse = new RpcResponse();
+                xxlRpcResponse.setRequestId(futureResponse.getRequest().getRequestId());
+                xxlRpcResponse.setErrorMsg("rpc, request timeout at:" + System.currentTimeMillis() + ", request:" + futureResponse.getRequest());
+                if (notifyInvokerFuture(futureResponse.getRequest().getRequestId(), xxlRpcResponse)) {
+                    TransportMetrics.REQUEST_EXPIRED.increment();
+                }
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS));
+    }
+    public void stopTimeoutTimer() {
+        if (timeoutTimer != null) {
+            timeoutTimer.stop();
+        }
     }
 
 
@@ -178,4 +273,128 @@ public class RpcInvokerFactory {
         }
     }
 
+
+    // ---------------------- response decode ThreadPool ----------------------
+
+    private volatile ThreadPoolExecutor responseDecodeThreadPool = null;
+
+    /**
+     * deserialize response off the io thread (offloadSerialize); throw RpcException if exhausted, then caller decode inline
+     */
+    public void executeResponseDecode(Runnable runnable){
+
+        if (responseDecodeThreadPool == null) {
+            synchronized (this) {
+                if (responseDecodeThreadPool == null) {
+                    int threads = CgroupUtil.availableProcessors();
+                    responseDecodeThreadPool = new ThreadPoolExecutor(
+                            threads,
+                            threads,
+                            60L,
+                            TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(ThreadPoolUtil.DEFAULT_QUEUE_CAPACITY),
+                            new ThreadFactory() {
+                                @Override
+                                public Thread newThread(Runnable r) {
+                                    Thread thread = new Thread(r, "rpc, RpcInvokerFactory-responseDecodeThreadPool-" + r.hashCode());
+                                    thread.setDaemon(true);
+                                    return thread;
+                                }
+                            },
+                            new RejectedExecutionHandler() {
+                                @Override
+                                public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                                    throw new RpcException("rpc Response Decode Thread pool is EXHAUSTED!");
+                                }
+                            });
+                }
+            }
+        }
+        responseDecodeThreadPool.execute(runnable);
+    }
+    public void stopResponseDecodeThreadPool() {
+        if (responseDecodeThreadPool != null) {
+            responseDecodeThreadPool.shutdown();
+        }
+    }
+
+
+
+    // ---------------------- warm up ----------------------
+
+    private static final int WARM_UP_THREADS = 32;
+
+    private volatile boolean ready = true;
+
+    /**
+     * ready for traffic: false while warming up
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * warm up before taking traffic: connect every reference to all its addresses in parallel, then call its warm-up methods;
+     * best effort, failures logged; ready again once done or timeout
+     *
+     * @return true if all addresses warmed up in time
+     */
+    public boolean warmUp(List<RpcReferenceBean> referenceBeans, final int calls, long timeoutMillis) {
+        ready = false;
+        try {
+            // task per reference and address
+            List<Callable<Void>> tasks = new ArrayList<>();
+            final List<String> taskNames = new ArrayList<>();
+            for (final RpcReferenceBean referenceBean : referenceBeans) {
+                for (final String address : referenceBean.warmUpAddresses()) {
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            referenceBean.warmUp(address, calls);
+                            return null;
+                        }
+                    });
+                    taskNames.add(referenceBean.getIface().getName() + "@" + address);
+                }
+            }
+            if (tasks.isEmpty()) {
+                return true;
+            }
+
+            // parallel, bounded by timeout
+            long start = System.currentTimeMillis();
+            ExecutorService warmUpThreadPool = Executors.newFixedThreadPool(Math.min(tasks.size(), WARM_UP_THREADS), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "rpc, RpcInvokerFactory-warmUpThreadPool-" + r.hashCode());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            int success = 0;
+            try {
+                List<Future<Void>> futures = warmUpThreadPool.invokeAll(tasks, timeoutMillis, TimeUnit.MILLISECONDS);
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        futures.get(i).get();
+                        success++;
+                    } catch (CancellationException e) {
+                        log.warn(">>>>>>>>>>> rpc warm up timeout, {}", taskNames.get(i));
+                    } catch (ExecutionException e) {
+                        log.warn(">>>>>>>>>>> rpc warm up fail, {}", taskNames.get(i), e.getCause());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                warmUpThreadPool.shutdownNow();
+            }
+
+            log.info(">>>>>>>>>>> rpc warm up finish, success:{}/{}, cost:{}ms", success, tasks.size(), System.currentTimeMillis() - start);
+            return success == tasks.size();
+        } finally {
+            ready = true;
+        }
+    }
+
 }
@@ -3,7 +3,11 @@ package com.xxl.rpc.core.remoting.invoker.annotation;
 import com.xxl.rpc.core.remoting.invoker.call.CallType;
 import com.xxl.rpc.core.remoting.invoker.route.LoadBalance;
 import com.xxl.rpc.core.remoting.net.Client;
+import com.xxl.rpc.core.remoting.net.common.BackpressurePolicy;
+import com.xxl.rpc.core.remoting.net.common.ConnectionSelect;
+import com.xxl.rpc.core.remoting.net.common.TransportMode;
 import com.xxl.rpc.core.remoting.net.impl.netty.client.NettyClient;
+import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyFrame;
 import com.xxl.rpc.core.serialize.Serializer;
 import com.xxl.rpc.core.serialize.impl.JavaSerializer;
 
@@ -23,6 +27,24 @@ public @interface RpcReference {
     Class<? extends Serializer> serializer() default JavaSerializer.class;
     CallType callType() default CallType.SYNC;
     LoadBalance loadBalance() default LoadBalance.ROUND;
+    TransportMode transportMode() default TransportMode.NIO;
+    boolean tcpQuickAck() default false;
+
+    int minConnections() default 1;
+    int maxConnections() default 1;
+    ConnectionSelect connectionSelect() default ConnectionSelect.LEAST_PENDING;
+    int connectTimeout() default 10000;
+    boolean connectFailFast() default false;
+    long pingInterval() default 5000;
+    int pingMaxMissed() default 3;
+
+    int writeBufferLowWaterMark() default 0;
+    int writeBufferHighWaterMark() default 0;
+    BackpressurePolicy backpressurePolicy() default BackpressurePolicy.BLOCK;
+    boolean offloadSerialize() default false;
+    int maxFrameLength() default NettyFrame.DEFAULT_MAX_FRAME_LENGTH;
+    boolean localCopy() default false;
+    String[] warmUpMethods() default {};
 
     //Class<?> iface;
     String version() default "";
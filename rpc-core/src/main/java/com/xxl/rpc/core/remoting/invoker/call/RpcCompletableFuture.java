@@ -0,0 +1,33 @@
+package com.xxl.rpc.core.remoting.invoker.call;
+
+import com.xxl.rpc.core.remoting.net.params.RpcFutureResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * future returned by service method declaring CompletableFuture / CompletionStage
+ *
+ *      completed by the thread receiving response (io thread, or decode thread with offloadSerialize), no thread blocked;
+ *      dependent stages (not "xxxAsync") run on that thread too, keep them short or pass an executor;
+ *      timeout: completed exceptionally with RpcException; cancel: response dropped, provider not notified;
+ */
+public class RpcCompletableFuture extends CompletableFuture<Object> {
+
+    private volatile RpcFutureResponse futureResponse;
+
+    public void setFutureResponse(RpcFutureResponse futureResponse) {
+        this.futureResponse = futureResponse;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        RpcFutureResponse futureResponse = this.futureResponse;
+        if (cancelled && futureResponse != null) {
+            futureResponse.removeInvokerFuture();
+            futureResponse.cancelTimeout();
+        }
+        return cancelled;
+    }
+
+}
@@ -12,13 +12,16 @@ import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
 import org.springframework.util.ReflectionUtils;
 
 import java.lang.reflect.Field;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * rpc invoker factory, init service-registry and spring-bean by annotation (for spring)
@@ -26,13 +29,17 @@ import java.util.Set;
  * @author mzj 2018-10-19
  */
 @Slf4j
-public class RpcSpringInvokerFactory extends InstantiationAwareBeanPostProcessorAdapter implements InitializingBean, DisposableBean, BeanFactoryAware {
+public class RpcSpringInvokerFactory extends InstantiationAwareBeanPostProcessorAdapter implements InitializingBean, SmartInitializingSingleton, DisposableBean, BeanFactoryAware {
 
     // ---------------------- config ----------------------
 
     private Class<? extends Register> serviceRegistryClass;          // class.forname
     private Map<String, String> serviceRegistryParam;
 
+    private boolean warmUp = false;                 // connect to all discovered addresses (and call warmUpMethods) before context refresh completes
+    private int warmUpCalls = 100;                  // calls of each warm-up method, per address
+    private long warmUpTimeout = 30000;             // ms, warm up is best effort, ready after timeout anyway
+
 
     public void setServiceRegistryClass(Class<? extends Register> serviceRegistryClass) {
         this.serviceRegistryClass = serviceRegistryClass;
@@ -42,10 +49,23 @@ public class RpcSpringInvokerFactory extends InstantiationAwareBeanPostProcessor
         this.serviceRegistryParam = serviceRegistryParam;
     }
 
+    public void setWarmUp(boolean warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    public void setWarmUpCalls(int warmUpCalls) {
+        this.warmUpCalls = warmUpCalls;
+    }
+
+    public void setWarmUpTimeout(long warmUpTimeout) {
+        this.warmUpTimeout = warmUpTimeout;
+    }
+
 
     // ---------------------- util ----------------------
 
     private RpcInvokerFactory xxlRpcInvokerFactory;
+    private final List<RpcReferenceBean> referenceBeans = new CopyOnWriteArrayList<>();
 
     @Override
     public void afterPropertiesSet() throws Exception {
@@ -79,6 +99,22 @@ public class RpcSpringInvokerFactory extends InstantiationAwareBeanPostProcessor
                             .setSerializer(rpcReference.serializer())
                             .setCallType(rpcReference.callType())
                             .setLoadBalance(rpcReference.loadBalance())
+                            .setTransportMode(rpcReference.transportMode())
+                            .setTcpQuickAck(rpcReference.tcpQuickAck())
+                            .setMinConnections(rpcReference.minConnections())
+                            .setMaxConnections(rpcReference.maxConnections())
+                            .setConnectionSelect(rpcReference.connectionSelect())
+                            .setConnectTimeout(rpcReference.connectTimeout())
+                            .setConnectFailFast(rpcReference.connectFailFast())
+                            .setPingInterval(rpcReference.pingInterval())
+                            .setPingMaxMissed(rpcReference.pingMaxMissed())
+                            .setWriteBufferLowWaterMark(rpcReference.writeBufferLowWaterMark())
+                            .setWriteBufferHighWaterMark(rpcReference.writeBufferHighWaterMark())
+                            .setBackpressurePolicy(rpcReference.backpressurePolicy())
+                            .setOffloadSerialize(rpcReference.offloadSerialize())
+                            .setMaxFrameLength(rpcReference.maxFrameLength())
+                            .setLocalCopy(rpcReference.localCopy())
+                            .setWarmUpMethods(rpcReference.warmUpMethods())
                             .setIface(iface)
                             .setVersion(rpcReference.version())
                             .setTimeout(rpcReference.timeout())
@@ -99,6 +135,7 @@ public class RpcSpringInvokerFactory extends InstantiationAwareBeanPostProcessor
                     // set bean
                     field.setAccessible(true);
                     field.set(bean, serviceProxy);
+                    referenceBeans.add(referenceBean);
 
                     log.info(">>>>>>>>>>> rpc, invoker factory init reference bean success. serviceKey = {}, bean.field = {}.{}",
                             RpcProviderFactory.makeServiceKey(iface.getName(), rpcReference.version()), beanName, field.getName());
@@ -124,6 +161,23 @@ public class RpcSpringInvokerFactory extends InstantiationAwareBeanPostProcessor
     }
 
 
+    /**
+     * all singletons (and references) created, warm up before context refresh completes, so readiness follows it
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (warmUp) {
+            xxlRpcInvokerFactory.warmUp(referenceBeans, warmUpCalls, warmUpTimeout);
+        }
+    }
+
+    /**
+     * ready for traffic, false while warming up
+     */
+    public boolean isReady() {
+        return xxlRpcInvokerFactory != null && xxlRpcInvokerFactory.isReady();
+    }
+
     @Override
     public void destroy() throws Exception {
 
@@ -0,0 +1,67 @@
+package com.xxl.rpc.core.remoting.invoker.reference;
+
+import com.xxl.rpc.core.remoting.invoker.generic.RpcGenericService;
+import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
+import lombok.Getter;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * client method descriptor, built once when proxy created
+ *
+ *      serviceKey: registry discovery + load balance;
+ *      methodKey: match method id published by provider handshake;
+ *      async: return type CompletableFuture / CompletionStage, completed by response;
+ *      not cached: encoded request bytes (serializer encodes the whole request, no fixed prefix; methodId shortens it after handshake),
+ *                  and routing (discovery + load balance run per call, to follow registry changes and balance across addresses);
+ */
+@Getter
+public class RpcMethodDescriptor {
+
+    private final String className;
+    private final String version;
+    private final String methodName;
+    private final Class<?>[] parameterTypes;        // shared, never modify
+
+    private final String serviceKey;
+    private final String methodKey;
+
+    private final boolean generic;
+    private final boolean async;
+
+    public RpcMethodDescriptor(String className, String version, String methodName, Class<?>[] parameterTypes) {
+        this(className, version, methodName, parameterTypes, null);
+    }
+
+    public RpcMethodDescriptor(String className, String version, String methodName, Class<?>[] parameterTypes, Class<?> returnType) {
+        this.className = className;
+        this.version = version;
+        this.methodName = methodName;
+        this.parameterTypes = parameterTypes;
+
+        this.serviceKey = RpcProviderFactory.makeServiceKey(className, version);
+        this.methodKey = RpcProviderFactory.makeMethodKey(serviceKey, methodName, parameterTypes);
+
+        this.generic = RpcGenericService.class.getName().equals(className) && "invoke".equals(methodName);
+        this.async = returnType == CompletableFuture.class || returnType == CompletionStage.class;
+    }
+
+    /**
+     * parse descriptors of iface, exclude "Object" method
+     */
+    public static Map<Method, RpcMethodDescriptor> parse(Class<?> iface, String version) {
+        Map<Method, RpcMethodDescriptor> methodDescriptors = new HashMap<Method, RpcMethodDescriptor>();
+        for (Method method : iface.getMethods()) {
+            if (method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            methodDescriptors.put(method, new RpcMethodDescriptor(method.getDeclaringClass().getName(), version, method.getName(), method.getParameterTypes(), method.getReturnType()));
+        }
+        return methodDescriptors;
+    }
+
+}
@@ -2,12 +2,17 @@ package com.xxl.rpc.core.remoting.invoker.reference;
 
 import com.xxl.rpc.core.remoting.invoker.RpcInvokerFactory;
 import com.xxl.rpc.core.remoting.invoker.call.CallType;
+import com.xxl.rpc.core.remoting.invoker.call.RpcCompletableFuture;
 import com.xxl.rpc.core.remoting.invoker.call.RpcInvokeCallback;
 import com.xxl.rpc.core.remoting.invoker.call.RpcInvokeFuture;
-import com.xxl.rpc.core.remoting.invoker.generic.RpcGenericService;
 import com.xxl.rpc.core.remoting.invoker.route.LoadBalance;
 import com.xxl.rpc.core.remoting.net.Client;
+import com.xxl.rpc.core.remoting.net.common.AddressQuarantine;
+import com.xxl.rpc.core.remoting.net.common.BackpressurePolicy;
+import com.xxl.rpc.core.remoting.net.common.ConnectionSelect;
+import com.xxl.rpc.core.remoting.net.common.TransportMode;
 import com.xxl.rpc.core.remoting.net.impl.netty.client.NettyClient;
+import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyFrame;
 import com.xxl.rpc.core.remoting.net.params.RpcFutureResponse;
 import com.xxl.rpc.core.remoting.net.params.RpcRequest;
 import com.xxl.rpc.core.remoting.net.params.RpcResponse;
@@ -23,8 +28,10 @@ import lombok.extern.slf4j.Slf4j;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
 import java.util.TreeSet;
-import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -44,6 +51,24 @@ public class RpcReferenceBean {
 	private Class<? extends Serializer> serializer = JavaSerializer.class;
 	private CallType callType = CallType.SYNC;
 	private LoadBalance loadBalance = LoadBalance.ROUND;
+	private TransportMode transportMode = TransportMode.NIO;
+	private boolean tcpQuickAck = false;		// epoll only, TCP_QUICKACK
+
+	private int minConnections = 1;				// connections per address, pool grow when busy and shrink when idle
+	private int maxConnections = 1;
+	private ConnectionSelect connectionSelect = ConnectionSelect.LEAST_PENDING;
+	private int connectTimeout = 10000;			// connect timeout of one connection, ms; connect async, callers share it and wait for it to finish
+	private boolean connectFailFast = false;	// no valid connection and connecting: fail at once, instead of wait
+	private long pingInterval = 5000;			// NettyClient only, ping interval of each connection, ms, rtt by pong; 0 = no ping
+	private int pingMaxMissed = 3;				// NettyClient only, connection closed after pings in a row without pong
+
+	private int writeBufferLowWaterMark = 0;	// 0 = netty default, 32K
+	private int writeBufferHighWaterMark = 0;	// 0 = netty default, 64K; channel not writable above it
+	private BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+	private boolean offloadSerialize = false;	// NettyClient only, serialize on caller thread and deserialize on decode thread, instead of io thread; not for connection-scoped serializer
+	private int maxFrameLength = NettyFrame.DEFAULT_MAX_FRAME_LENGTH;	// NettyClient only, response frame over it rejected by header (request failed, body skipped; channel kept, closed if serializer connection-scoped)
+	private String[] warmUpMethods = null;		// no-arg methods of iface, called on each address during warm up (RpcInvokerFactory.warmUp); result ignored
+	private boolean localCopy = false;			// LocalClient only, copy request and response by serializer, keep value semantics of remote call
 
 	private Class<?> iface = null;
 	private String version = null;
@@ -78,6 +103,33 @@ public class RpcReferenceBean {
 		if (this.loadBalance==null) {
 			throw new RpcException("rpc reference loadBalance missing.");
 		}
+		if (this.transportMode==null) {
+			this.transportMode = TransportMode.NIO;
+		}
+		if (this.maxConnections < 1) {
+			this.maxConnections = 1;
+		}
+		if (this.minConnections < 1 || this.minConnections > this.maxConnections) {
+			this.minConnections = 1;
+		}
+		if (this.connectionSelect == null) {
+			this.connectionSelect = ConnectionSelect.LEAST_PENDING;
+		}
+		if (this.connectTimeout <= 0) {
+			this.connectTimeout = 10000;
+		}
+		if (this.pingInterval < 0) {
+			this.pingInterval = 0;
+		}
+		if (this.pingMaxMissed < 1) {
+			this.pingMaxMissed = 3;
+		}
+		if (this.maxFrameLength <= 0) {
+			this.maxFrameLength = NettyFrame.DEFAULT_MAX_FRAME_LENGTH;
+		}
+		if (this.backpressurePolicy == null) {
+			this.backpressurePolicy = BackpressurePolicy.BLOCK;
+		}
 		if (this.iface==null) {
 			throw new RpcException("rpc reference iface missing.");
 		}
@@ -90,6 +142,10 @@ public class RpcReferenceBean {
 
 		// init serializerInstance
 		this.serializerInstance = serializer.newInstance();
+		if (this.offloadSerialize && this.serializerInstance.forConnection() != this.serializerInstance) {
+			log.warn(">>>>>>>>>>> rpc reference offloadSerialize ignored, serializer[{}] is connection-scoped.", serializer.getName());
+			this.offloadSerialize = false;		// decode in wire order
+		}
 
 		// init Client
 		clientInstance = client.newInstance();
@@ -106,6 +162,9 @@ public class RpcReferenceBean {
 		// initClient
 		initClient();
 
+		// method descriptor, precomputed
+		final Map<Method, RpcMethodDescriptor> methodDescriptors = RpcMethodDescriptor.parse(iface, version);
+
 		// newProxyInstance
 		return Proxy.newProxyInstance(Thread.currentThread()
 				.getContextClassLoader(), new Class[] { iface },
@@ -113,15 +172,18 @@ public class RpcReferenceBean {
 					@Override
 					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 
-						// method param
-						String className = method.getDeclaringClass().getName();	// iface.getName()
-						String varsion_ = version;
-						String methodName = method.getName();
-						Class<?>[] parameterTypes = method.getParameterTypes();
+						// method descriptor
+						RpcMethodDescriptor methodDescriptor = methodDescriptors.get(method);
 						Object[] parameters = args;
 
+						// filter method like "Object.toString()"
+						if (methodDescriptor == null) {
+							log.info(">>>>>>>>>>> rpc proxy class-method not support [{}#{}]", method.getDeclaringClass().getName(), method.getName());
+							throw new RpcException("rpc proxy class-method not support");
+						}
+
 						// filter for generic
-						if (className.equals(RpcGenericService.class.getName()) && methodName.equals("invoke")) {
+						if (methodDescriptor.isGeneric()) {
 
 							Class<?>[] paramTypes = null;
 							if (args[3]!=null) {
@@ -134,26 +196,20 @@ public class RpcReferenceBean {
 								}
 							}
 
-							className = (String) args[0];
-							varsion_ = (String) args[1];
-							methodName = (String) args[2];
-							parameterTypes = paramTypes;
+							methodDescriptor = new RpcMethodDescriptor((String) args[0], (String) args[1], (String) args[2], paramTypes);
 							parameters = (Object[]) args[4];
 						}
-
-						// filter method like "Object.toString()"
-						if (className.equals(Object.class.getName())) {
-							log.info(">>>>>>>>>>> rpc proxy class-method not support [{}#{}]", className, methodName);
-							throw new RpcException("rpc proxy class-method not support");
-						}
+						String className = methodDescriptor.getClassName();
 
 						// address
 						String finalAddress = address;
 						if (finalAddress==null || finalAddress.trim().length()==0) {
 							if (invokerFactory!=null && invokerFactory.getRegister()!=null) {
 								// discovery
-								String serviceKey = RpcProviderFactory.makeServiceKey(className, varsion_);
+								String serviceKey = methodDescriptor.getServiceKey();
 								TreeSet<String> addressSet = invokerFactory.getRegister().discovery(serviceKey);
+								// skip address quarantined by connect fail
+								addressSet = AddressQuarantine.filter(addressSet);
 								// load balance
 								if (addressSet==null || addressSet.size()==0) {
 									// pass
@@ -170,15 +226,12 @@ public class RpcReferenceBean {
 						}
 
 						// request
-						RpcRequest xxlRpcRequest = new RpcRequest();
-	                    xxlRpcRequest.setRequestId(UUID.randomUUID().toString());
-	                    xxlRpcRequest.setCreateMillisTime(System.currentTimeMillis());
-	                    xxlRpcRequest.setAccessToken(accessToken);
-	                    xxlRpcRequest.setClassName(className);
-	                    xxlRpcRequest.setMethodName(methodName);
-	                    xxlRpcRequest.setParameterTypes(parameterTypes);
-	                    xxlRpcRequest.setParameters(parameters);
-	                    xxlRpcRequest.setVersion(version);
+						RpcRequest xxlRpcRequest = newRequest(methodDescriptor, parameters);
+
+						// CompletableFuture / CompletionStage, completed by response, no thread blocked (any callType)
+						if (methodDescriptor.isAsync()) {
+							return invokeAsync(finalAddress, xxlRpcRequest);
+						}
 
 	                    // send
 						if (CallType.SYNC == callType) {
@@ -203,8 +256,11 @@ public class RpcReferenceBean {
 								futureResponse.removeInvokerFuture();
 							}
 						} else if (CallType.FUTURE == callType) {
-							// future-response set
+							// future-response set, expired at timeout if never get
 							RpcFutureResponse futureResponse = new RpcFutureResponse(invokerFactory, xxlRpcRequest, null);
+							if (timeout > 0) {
+								invokerFactory.scheduleTimeout(futureResponse, timeout);
+							}
                             try {
 								// invoke future set
 								RpcInvokeFuture invokeFuture = new RpcInvokeFuture(futureResponse);
@@ -235,8 +291,11 @@ public class RpcReferenceBean {
 								throw new RpcException("rpc RpcInvokeCallback（CallType="+ CallType.CALLBACK.name() +"） cannot be null.");
 							}
 
-							// future-response set
+							// future-response set, expired at timeout (onFailure)
 							RpcFutureResponse futureResponse = new RpcFutureResponse(invokerFactory, xxlRpcRequest, finalInvokeCallback);
+							if (timeout > 0) {
+								invokerFactory.scheduleTimeout(futureResponse, timeout);
+							}
 							try {
 								clientInstance.asyncSend(finalAddress, xxlRpcRequest);
 							} catch (Exception e) {
@@ -260,4 +319,89 @@ public class RpcReferenceBean {
 				});
 	}
 
+	private RpcCompletableFuture invokeAsync(String address, RpcRequest xxlRpcRequest) {
+		RpcCompletableFuture completableFuture = new RpcCompletableFuture();
+		RpcFutureResponse futureResponse = new RpcFutureResponse(invokerFactory, xxlRpcRequest, null, completableFuture);
+		if (timeout > 0) {
+			invokerFactory.scheduleTimeout(futureResponse, timeout);
+		}
+		try {
+			clientInstance.asyncSend(address, xxlRpcRequest);
+		} catch (Exception e) {
+			log.info(">>>>>>>>>>> rpc, invoke error, address:{}, RpcRequest{}", address, xxlRpcRequest);
+
+			// future-response remove, fail the future instead of throw
+			futureResponse.removeInvokerFuture();
+			futureResponse.cancelTimeout();
+			completableFuture.completeExceptionally((e instanceof RpcException)?e:new RpcException(e));
+		}
+		return completableFuture;
+	}
+
+	private RpcRequest newRequest(RpcMethodDescriptor methodDescriptor, Object[] parameters) {
+		RpcRequest xxlRpcRequest = new RpcRequest();
+		xxlRpcRequest.setRequestId(invokerFactory.nextRequestId());
+		xxlRpcRequest.setCreateMillisTime(System.currentTimeMillis());
+		xxlRpcRequest.setAccessToken(accessToken);
+		xxlRpcRequest.setClassName(methodDescriptor.getClassName());
+		xxlRpcRequest.setMethodName(methodDescriptor.getMethodName());
+		xxlRpcRequest.setParameterTypes(methodDescriptor.getParameterTypes());
+		xxlRpcRequest.setParameters(parameters);
+		xxlRpcRequest.setVersion(methodDescriptor.getVersion());
+		xxlRpcRequest.setMethodKey(methodDescriptor.getMethodKey());
+		return xxlRpcRequest;
+	}
+
+
+	// ---------------------- warm up ----------------------
+
+	/**
+	 * addresses to warm up: fixed address, or all discovered; empty if none
+	 */
+	public Set<String> warmUpAddresses() {
+		if (address != null && address.trim().length() > 0) {
+			return Collections.singleton(address);
+		}
+		if (invokerFactory != null && invokerFactory.getRegister() != null) {
+			TreeSet<String> addressSet = invokerFactory.getRegister().discovery(RpcProviderFactory.makeServiceKey(iface.getName(), version));
+			if (addressSet != null) {
+				return addressSet;
+			}
+		}
+		return Collections.emptySet();
+	}
+
+	/**
+	 * connect to address, then call each warm-up method "calls" times, sync; business error ignored, send error or timeout thrown
+	 */
+	public void warmUp(String address, int calls) throws Exception {
+		if (clientInstance == null) {
+			throw new RpcException("rpc reference bean["+ iface.getName() +"] not init.");
+		}
+		clientInstance.connect(address);
+		if (warmUpMethods == null) {
+			return;
+		}
+
+		for (String warmUpMethod : warmUpMethods) {
+			Method method;
+			try {
+				method = iface.getMethod(warmUpMethod);
+			} catch (NoSuchMethodException e) {
+				throw new RpcException("rpc warm up method["+ iface.getName() +"#"+ warmUpMethod +"()] not found, no-arg method required.");
+			}
+			RpcMethodDescriptor methodDescriptor = new RpcMethodDescriptor(method.getDeclaringClass().getName(), version, method.getName(), method.getParameterTypes());
+			for (int i = 0; i < calls; i++) {
+				RpcRequest xxlRpcRequest = newRequest(methodDescriptor, null);
+				RpcFutureResponse futureResponse = new RpcFutureResponse(invokerFactory, xxlRpcRequest, null);
+				try {
+					clientInstance.asyncSend(address, xxlRpcRequest);
+					futureResponse.get(timeout, TimeUnit.MILLISECONDS);
+				} finally {
+					futureResponse.removeInvokerFuture();
+				}
+			}
+		}
+	}
+
 }
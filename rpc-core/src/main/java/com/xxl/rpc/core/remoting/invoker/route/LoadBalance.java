@@ -11,7 +11,8 @@ public enum LoadBalance {
     ROUND(new RpcLoadBalanceRoundStrategy()),
     LRU(new RpcLoadBalanceLRUStrategy()),
     LFU(new RpcLoadBalanceLFUStrategy()),
-    CONSISTENT_HASH(new RpcLoadBalanceConsistentHashStrategy());
+    CONSISTENT_HASH(new RpcLoadBalanceConsistentHashStrategy()),
+    LEAST_RTT(new RpcLoadBalanceLeastRttStrategy());
 
     public final RpcLoadBalance xxlRpcInvokerRouter;
 
@@ -0,0 +1,44 @@
+package com.xxl.rpc.core.remoting.invoker.route.impl;
+
+import com.xxl.rpc.core.remoting.invoker.route.RpcLoadBalance;
+import com.xxl.rpc.core.remoting.net.common.ConnectClient;
+
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * least rtt, by ping of connections (ewma)
+ *
+ *      two addresses picked at random, the one of lower rtt wins; spread load instead of herding on the fastest one;
+ *      rtt unknown: never connected counted as fastest, so it gets connected and measured (first ping once connected);
+ *          connected but no pong (connecting, broken, or old server) counted as slowest;
+ */
+public class RpcLoadBalanceLeastRttStrategy extends RpcLoadBalance {
+
+    @Override
+    public String route(String serviceKey, TreeSet<String> addressSet) {
+        // arr
+        String[] addressArr = addressSet.toArray(new String[addressSet.size()]);
+        if (addressArr.length == 1) {
+            return addressArr[0];
+        }
+
+        // two choices
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(addressArr.length);
+        int second = random.nextInt(addressArr.length - 1);
+        if (second >= first) {
+            second++;
+        }
+        return rank(addressArr[first]) <= rank(addressArr[second]) ? addressArr[first] : addressArr[second];
+    }
+
+    private static long rank(String address) {
+        long rttMicros = ConnectClient.getRttMicros(address);
+        if (rttMicros >= 0) {
+            return rttMicros;
+        }
+        return ConnectClient.hasPool(address) ? Long.MAX_VALUE : 0;
+    }
+
+}
@@ -29,4 +29,14 @@ public abstract class Client {
 	 */
 	public abstract void asyncSend(String address, RpcRequest xxlRpcRequest) throws Exception;
 
+	/**
+	 * connect ahead of first request (warm up); default none, connect lazily on send
+	 *
+	 * @param address
+	 * @throws Exception
+	 */
+	public void connect(String address) throws Exception {
+		// pass
+	}
+
 }
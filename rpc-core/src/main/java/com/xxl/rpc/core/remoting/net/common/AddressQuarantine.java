@@ -0,0 +1,96 @@
+package com.xxl.rpc.core.remoting.net.common;
+
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * addresses of this jvm failed to connect, quarantined with backoff
+ *
+ *      connect fail: quarantined for BASE_BACKOFF, doubled by each consecutive fail, up to MAX_BACKOFF;
+ *      connect success: released;
+ *      while quarantined: connect skipped (fail fast), address skipped by load balance unless all quarantined;
+ */
+public class AddressQuarantine {
+
+    public static final long BASE_BACKOFF = 1000;
+    public static final long MAX_BACKOFF = 30 * 1000;
+
+    private static final ConcurrentMap<String, Entry> quarantineMap = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        private final int failCount;
+        private final long releaseTime;
+
+        private Entry(int failCount, long releaseTime) {
+            this.failCount = failCount;
+            this.releaseTime = releaseTime;
+        }
+    }
+
+    public static void onConnectFail(String address) {
+        Entry entry = quarantineMap.get(address);
+        int failCount = entry != null ? entry.failCount + 1 : 1;
+        long backoff = Math.min(MAX_BACKOFF, BASE_BACKOFF << Math.min(failCount - 1, 16));
+        quarantineMap.put(address, new Entry(failCount, System.currentTimeMillis() + backoff));
+        TransportMetrics.CONNECT_FAILS.increment();
+    }
+
+    public static void onConnectSuccess(String address) {
+        if (!quarantineMap.isEmpty()) {
+            quarantineMap.remove(address);
+        }
+    }
+
+    public static boolean isQuarantined(String address) {
+        if (quarantineMap.isEmpty()) {
+            return false;
+        }
+        Entry entry = quarantineMap.get(address);
+        return entry != null && System.currentTimeMillis() < entry.releaseTime;
+    }
+
+    /**
+     * remaining quarantine time, 0 if not quarantined
+     */
+    public static long remaining(String address) {
+        Entry entry = quarantineMap.get(address);
+        return entry != null ? Math.max(0, entry.releaseTime - System.currentTimeMillis()) : 0;
+    }
+
+    /**
+     * addresses not quarantined, for load balance; origin set if none quarantined, or all quarantined
+     */
+    public static TreeSet<String> filter(TreeSet<String> addressSet) {
+        if (quarantineMap.isEmpty() || addressSet == null || addressSet.size() < 2) {
+            return addressSet;
+        }
+        TreeSet<String> availableSet = null;
+        for (String address : addressSet) {
+            if (isQuarantined(address)) {
+                if (availableSet == null) {
+                    availableSet = new TreeSet<>(addressSet);
+                }
+                availableSet.remove(address);
+            }
+        }
+        if (availableSet == null || availableSet.isEmpty()) {
+            return addressSet;
+        }
+        return availableSet;
+    }
+
+    /**
+     * gauge, addresses quarantined now
+     */
+    public static int quarantinedCount() {
+        int count = 0;
+        for (String address : quarantineMap.keySet()) {
+            if (isQuarantined(address)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
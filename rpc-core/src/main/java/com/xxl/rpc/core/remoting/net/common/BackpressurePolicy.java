@@ -0,0 +1,25 @@
+package com.xxl.rpc.core.remoting.net.common;
+
+/**
+ * policy when channel not writable (outbound buffer over high water mark)
+ *
+ *      BLOCK: wait until writable, at most "timeout" of reference, then fail with RpcBackpressureException;
+ *      FAIL_FAST: fail with RpcBackpressureException at once;
+ *      SPILL: send by another writable connection of the pool (grow if allowed), BLOCK if none;
+ */
+public enum BackpressurePolicy {
+
+    BLOCK,
+    FAIL_FAST,
+    SPILL;
+
+    public static BackpressurePolicy match(String name, BackpressurePolicy defaultPolicy) {
+        for (BackpressurePolicy item : BackpressurePolicy.values()) {
+            if (item.name().equals(name)) {
+                return item;
+            }
+        }
+        return defaultPolicy;
+    }
+
+}
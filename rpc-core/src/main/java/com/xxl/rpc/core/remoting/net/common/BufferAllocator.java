@@ -0,0 +1,33 @@
+package com.xxl.rpc.core.remoting.net.common;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+/**
+ * netty ByteBuf allocator
+ *
+ *      POOLED: pooled, prefer direct (netty default);
+ *      UNPOOLED: no pool, less memory retained, more GC;
+ */
+public enum BufferAllocator {
+
+    POOLED(PooledByteBufAllocator.DEFAULT),
+    UNPOOLED(UnpooledByteBufAllocator.DEFAULT);
+
+    public final ByteBufAllocator allocator;
+
+    BufferAllocator(ByteBufAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    public static BufferAllocator match(String name, BufferAllocator defaultAllocator) {
+        for (BufferAllocator item : BufferAllocator.values()) {
+            if (item.name().equals(name)) {
+                return item;
+            }
+        }
+        return defaultAllocator;
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.xxl.rpc.core.remoting.net.common;
+
+import com.xxl.rpc.core.remoting.invoker.RpcInvokerFactory;
+import com.xxl.rpc.core.remoting.net.params.Beat;
+import com.xxl.rpc.core.remoting.net.params.RpcResponse;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * non-blocking channel writer, with flush coalescing
+ *
+ *      write: never wait event loop, a failed write completes the pending future (or callback) with error;
+ *      flush: callers only enqueue, at most one drain task queued per channel; it writes all queued messages then flush once (one syscall);
+ *      writable: follow channel water marks, callers may wait until writable (backpressure);
+ */
+@Slf4j
+public class ChannelWriter {
+
+    private final Channel channel;
+    private final RpcInvokerFactory xxlRpcInvokerFactory;
+
+    private final Queue<PendingWrite> writeQueue = new ConcurrentLinkedQueue<PendingWrite>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drainScheduled.set(false);        // reset before drain, later writes schedule next drain
+
+            PendingWrite pendingWrite;
+            while ((pendingWrite = writeQueue.poll()) != null) {
+                final long requestId = pendingWrite.requestId;
+                channel.write(pendingWrite.msg).addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        if (!future.isSuccess()) {
+                            fail(requestId, future.cause());
+                        }
+                    }
+                });
+            }
+            channel.flush();
+        }
+    };
+
+    public ChannelWriter(Channel channel, RpcInvokerFactory xxlRpcInvokerFactory) {
+        this.channel = channel;
+        this.xxlRpcInvokerFactory = xxlRpcInvokerFactory;
+    }
+
+    /**
+     * write async, flush coalesced
+     */
+    public void write(Object msg, long requestId) {
+        writeQueue.offer(new PendingWrite(msg, requestId));
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                channel.eventLoop().execute(drainTask);
+            } catch (RejectedExecutionException e) {
+                // event loop shut down, nothing will drain: fail queued writes now, not by timeout
+                drainScheduled.set(false);
+                PendingWrite pendingWrite;
+                while ((pendingWrite = writeQueue.poll()) != null) {
+                    ReferenceCountUtil.release(pendingWrite.msg);
+                    fail(pendingWrite.requestId, e);
+                }
+            }
+        }
+    }
+
+
+    // ---------------------- writable ----------------------
+
+    private final Object writableLock = new Object();
+    private boolean unwritable = false;         // event loop only, for metrics
+
+    public boolean isWritable() {
+        return channel.isWritable();
+    }
+
+    /**
+     * wait until channel writable, or inactive / timeout
+     *
+     * @param timeoutMillis     <= 0 = no timeout
+     * @return true if writable
+     */
+    public boolean awaitWritable(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (writableLock) {
+            while (!channel.isWritable()) {
+                if (!channel.isActive()) {
+                    return false;
+                }
+                if (timeoutMillis <= 0) {
+                    writableLock.wait();
+                    continue;
+                }
+                long remain = deadline - System.currentTimeMillis();
+                if (remain <= 0) {
+                    return false;
+                }
+                writableLock.wait(remain);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * called by event loop, when writability changed or channel inactive
+     */
+    public void onWritabilityChanged() {
+        boolean unwritable = channel.isActive() && !channel.isWritable();
+        if (unwritable != this.unwritable) {
+            this.unwritable = unwritable;
+            if (unwritable) {
+                TransportMetrics.UNWRITABLE_CHANNELS.incrementAndGet();
+                TransportMetrics.UNWRITABLE_EVENTS.increment();
+            } else {
+                TransportMetrics.UNWRITABLE_CHANNELS.decrementAndGet();
+            }
+        }
+        synchronized (writableLock) {
+            writableLock.notifyAll();
+        }
+    }
+
+    /**
+     * request write fail, complete the pending future (or callback) with error
+     */
+    public void fail(long requestId, Throwable cause) {
+        log.warn(">>>>>>>>>>> rpc, send request fail, requestId:{}, channel:{}", requestId, channel, cause);
+        if (requestId == Beat.BEAT_ID) {
+            return;
+        }
+        RpcResponse xxlRpcResponse = new RpcResponse();
+        xxlRpcResponse.setRequestId(requestId);
+        xxlRpcResponse.setErrorMsg("rpc, send request fail: " + cause);
+        xxlRpcInvokerFactory.notifyInvokerFuture(requestId, xxlRpcResponse);
+    }
+
+    private static class PendingWrite {
+        private final Object msg;
+        private final long requestId;
+
+        private PendingWrite(Object msg, long requestId) {
+            this.msg = msg;
+            this.requestId = requestId;
+        }
+    }
+
+}
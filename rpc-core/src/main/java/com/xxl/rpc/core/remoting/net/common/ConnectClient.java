@@ -3,20 +3,30 @@ package com.xxl.rpc.core.remoting.net.common;
 import com.xxl.rpc.core.remoting.invoker.RpcInvokerFactory;
 import com.xxl.rpc.core.remoting.invoker.reference.RpcReferenceBean;
 import com.xxl.rpc.core.remoting.net.params.BaseCallback;
+import com.xxl.rpc.core.remoting.net.params.Handshake;
+import com.xxl.rpc.core.remoting.net.params.RpcFutureResponse;
 import com.xxl.rpc.core.remoting.net.params.RpcRequest;
-import com.xxl.rpc.core.serialize.Serializer;
+import com.xxl.rpc.core.remoting.net.params.RpcResponse;
+import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
+import com.xxl.rpc.core.util.RpcBackpressureException;
+import lombok.extern.slf4j.Slf4j;
 
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author mzj 2018-10-19
  */
+@Slf4j
 public abstract class ConnectClient {
 
     // ---------------------- iface ----------------------
 
-    public abstract void init(String address, final Serializer serializer, final RpcInvokerFactory xxlRpcInvokerFactory) throws Exception;
+    public abstract void init(String address, final RpcReferenceBean xxlRpcReferenceBean) throws Exception;
 
     public abstract void close();
 
@@ -24,6 +34,130 @@ public abstract class ConnectClient {
 
     public abstract void send(RpcRequest xxlRpcRequest) throws Exception ;
 
+    /**
+     * outbound buffer under high water mark
+     */
+    public boolean isWritable() {
+        return true;
+    }
+
+    /**
+     * wait until writable, false if timeout or closed
+     */
+    public boolean awaitWritable(long timeoutMillis) throws InterruptedException {
+        return true;
+    }
+
+
+    // ---------------------- pending ----------------------
+
+    private final AtomicInteger pendingCount = new AtomicInteger();      // requests in flight, for pool select
+    private volatile long lastSendTime = System.currentTimeMillis();
+
+    /**
+     * send request; one with a pending future is counted as pending of this connection until the future is removed from
+     * pending pool (response, timeout, cancel or write fail), exactly once; oneway not counted
+     */
+    public void sendRequest(RpcRequest xxlRpcRequest, RpcInvokerFactory xxlRpcInvokerFactory) throws Exception {
+        RpcFutureResponse futureResponse = xxlRpcInvokerFactory.getInvokerFuture(xxlRpcRequest.getRequestId());
+        if (futureResponse != null) {
+            futureResponse.bindConnectClient(this);
+        }
+        lastSendTime = System.currentTimeMillis();
+        send(xxlRpcRequest);
+    }
+
+    /**
+     * request cancelled by caller, tell the provider (best effort) so it may skip the request not started yet;
+     * no-op unless the transport has a cancel frame
+     */
+    public void cancelRequest(long requestId) {
+    }
+
+    public void incrementPending() {
+        pendingCount.incrementAndGet();
+    }
+
+    public void decrementPending() {
+        pendingCount.decrementAndGet();
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public long getLastSendTime() {
+        return lastSendTime;
+    }
+
+
+    // ---------------------- rtt ----------------------
+
+    private static final double RTT_WEIGHT = 0.25;      // ewma, weight of new sample
+
+    private volatile long rttMicros = -1;               // ewma of ping rtt; -1 = unknown (no pong yet, or transport without ping)
+
+    /**
+     * pong received, by event loop of this connection (single writer)
+     */
+    public void onRtt(long rttNanos) {
+        long sample = Math.max(0, rttNanos / 1000);
+        long rtt = rttMicros;
+        rttMicros = rtt < 0 ? sample : (long) (rtt + RTT_WEIGHT * (sample - rtt));
+    }
+
+    public long getRttMicros() {
+        return rttMicros;
+    }
+
+
+    // ---------------------- method table ----------------------
+
+    private volatile Map<String, Integer> methodTable;
+
+    /**
+     * handshake, fetch method table of provider; keep full request if fail (like old provider)
+     */
+    @SuppressWarnings("unchecked")
+    protected void handshake(final RpcInvokerFactory xxlRpcInvokerFactory, String accessToken) {
+        RpcRequest handshakeRequest = Handshake.newRequest(xxlRpcInvokerFactory.nextRequestId(), accessToken);
+        RpcFutureResponse futureResponse = new RpcFutureResponse(xxlRpcInvokerFactory, handshakeRequest, null);
+        try {
+            sendRequest(handshakeRequest, xxlRpcInvokerFactory);
+            RpcResponse handshakeResponse = futureResponse.get(Handshake.HANDSHAKE_TIMEOUT, TimeUnit.MILLISECONDS);
+            if (handshakeResponse.getErrorMsg()==null && handshakeResponse.getResult() instanceof Map) {
+                methodTable = (Map<String, Integer>) handshakeResponse.getResult();
+            }
+        } catch (Exception e) {
+            log.warn(">>>>>>>>>>> rpc, handshake fail, send full request instead.", e);
+        } finally {
+            futureResponse.removeInvokerFuture();
+        }
+    }
+
+    /**
+     * replace className/methodName/parameterTypes/version by method id, if published by provider
+     */
+    protected void applyMethodId(RpcRequest xxlRpcRequest) {
+        Map<String, Integer> methodTable = this.methodTable;
+        if (methodTable==null || xxlRpcRequest.getClassName()==null) {
+            return;
+        }
+        String methodKey = xxlRpcRequest.getMethodKey();
+        if (methodKey == null) {
+            String serviceKey = RpcProviderFactory.makeServiceKey(xxlRpcRequest.getClassName(), xxlRpcRequest.getVersion());
+            methodKey = RpcProviderFactory.makeMethodKey(serviceKey, xxlRpcRequest.getMethodName(), xxlRpcRequest.getParameterTypes());
+        }
+        Integer methodId = methodTable.get(methodKey);
+        if (methodId != null) {
+            xxlRpcRequest.setMethodId(methodId);
+            xxlRpcRequest.setClassName(null);
+            xxlRpcRequest.setMethodName(null);
+            xxlRpcRequest.setParameterTypes(null);
+            xxlRpcRequest.setVersion(null);
+        }
+    }
+
 
     // ---------------------- client pool map ----------------------
 
@@ -36,37 +170,108 @@ public abstract class ConnectClient {
     ) throws Exception {
 
         // client pool	[tips03 : may save 35ms/100invoke if move it to constructor, but it is necessary. cause by ConcurrentHashMap.get]
-        ConnectClient clientPool = ConnectClient.getPool(address, connectClientImpl, xxlRpcReferenceBean);
+        ConnectClientPool clientPool = ConnectClient.getPool(address, connectClientImpl, xxlRpcReferenceBean);
 
-        try {
-            // do invoke
-            clientPool.send(xxlRpcRequest);
-        } catch (Exception e) {
-            throw e;
+        // select connection, backpressure if not writable
+        ConnectClient connectClient = clientPool.acquire();
+        if (!connectClient.isWritable()) {
+            connectClient = backpressure(clientPool, connectClient, address, xxlRpcReferenceBean);
+        }
+
+        // do invoke
+        connectClient.sendRequest(xxlRpcRequest, xxlRpcReferenceBean.getInvokerFactory());
+
+    }
+
+    /**
+     * connect ahead of first request (warm up), pool of address filled up to minConnections
+     */
+    public static void connect(String address,
+                               Class<? extends ConnectClient> connectClientImpl,
+                               final RpcReferenceBean xxlRpcReferenceBean) throws Exception {
+        ConnectClient.getPool(address, connectClientImpl, xxlRpcReferenceBean).connect();
+    }
+
+    private static ConnectClient backpressure(ConnectClientPool clientPool, ConnectClient connectClient, String address, RpcReferenceBean xxlRpcReferenceBean) throws Exception {
+        switch (xxlRpcReferenceBean.getBackpressurePolicy()) {
+            case FAIL_FAST:
+                TransportMetrics.BACKPRESSURE_REJECTED.increment();
+                throw new RpcBackpressureException("rpc, channel not writable, request rejected, address:" + address);
+            case SPILL:
+                ConnectClient writableClient = clientPool.acquireWritable();
+                if (writableClient != null) {
+                    TransportMetrics.BACKPRESSURE_SPILLED.increment();
+                    return writableClient;
+                }
+                // none writable, block
+                return blockUntilWritable(connectClient, address, xxlRpcReferenceBean);
+            default:
+                return blockUntilWritable(connectClient, address, xxlRpcReferenceBean);
+        }
+    }
+
+    private static ConnectClient blockUntilWritable(ConnectClient connectClient, String address, RpcReferenceBean xxlRpcReferenceBean) throws Exception {
+        TransportMetrics.BACKPRESSURE_BLOCKED.increment();
+        if (!connectClient.awaitWritable(xxlRpcReferenceBean.getTimeout())) {
+            TransportMetrics.BACKPRESSURE_REJECTED.increment();
+            throw new RpcBackpressureException("rpc, channel not writable, wait timeout, address:" + address);
         }
+        return connectClient;
+    }
+
+    /**
+     * ewma rtt of address, by ping; -1 if unknown
+     */
+    public static long getRttMicros(String address) {
+        ConcurrentMap<String, ConnectClientPool> connectClientPoolMap = ConnectClient.connectClientPoolMap;
+        ConnectClientPool clientPool = connectClientPoolMap != null ? connectClientPoolMap.get(address) : null;
+        return clientPool != null ? clientPool.getRttMicros() : -1;
+    }
+
+    /**
+     * address ever connected (or connecting) by this jvm
+     */
+    public static boolean hasPool(String address) {
+        ConcurrentMap<String, ConnectClientPool> connectClientPoolMap = ConnectClient.connectClientPoolMap;
+        return connectClientPoolMap != null && connectClientPoolMap.containsKey(address);
+    }
 
+    /**
+     * ewma rtt of addresses known
+     */
+    public static Map<String, Long> rttSnapshot() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        ConcurrentMap<String, ConnectClientPool> connectClientPoolMap = ConnectClient.connectClientPoolMap;
+        if (connectClientPoolMap != null) {
+            for (Map.Entry<String, ConnectClientPool> entry : connectClientPoolMap.entrySet()) {
+                long rttMicros = entry.getValue().getRttMicros();
+                if (rttMicros >= 0) {
+                    snapshot.put(entry.getKey(), rttMicros);
+                }
+            }
+        }
+        return snapshot;
     }
 
-    private static volatile ConcurrentMap<String, ConnectClient> connectClientMap;        // (static) alread addStopCallBack
-    private static volatile ConcurrentMap<String, Object> connectClientLockMap = new ConcurrentHashMap<>();
-    private static ConnectClient getPool(String address, Class<? extends ConnectClient> connectClientImpl, final RpcReferenceBean xxlRpcReferenceBean) throws Exception {
+    private static volatile ConcurrentMap<String, ConnectClientPool> connectClientPoolMap;        // (static) alread addStopCallBack
+    private static ConnectClientPool getPool(String address, Class<? extends ConnectClient> connectClientImpl, final RpcReferenceBean xxlRpcReferenceBean) {
 
         // init base compont, avoid repeat init
-        if (connectClientMap == null) {
+        if (connectClientPoolMap == null) {
             synchronized (ConnectClient.class) {
-                if (connectClientMap == null) {
+                if (connectClientPoolMap == null) {
                     // init
-                    connectClientMap = new ConcurrentHashMap<>();
+                    connectClientPoolMap = new ConcurrentHashMap<>();
                     // stop callback
                     xxlRpcReferenceBean.getInvokerFactory().addStopCallBack(new BaseCallback() {
                         @Override
                         public void run() throws Exception {
-                            if (connectClientMap.size() > 0) {
-                                for (String key: connectClientMap.keySet()) {
-                                    ConnectClient clientPool = connectClientMap.get(key);
+                            if (connectClientPoolMap.size() > 0) {
+                                for (String key: connectClientPoolMap.keySet()) {
+                                    ConnectClientPool clientPool = connectClientPoolMap.get(key);
                                     clientPool.close();
                                 }
-                                connectClientMap.clear();
+                                connectClientPoolMap.clear();
                             }
                         }
                     });
@@ -74,47 +279,13 @@ public abstract class ConnectClient {
             }
         }
 
-        // get-valid client
-        ConnectClient connectClient = connectClientMap.get(address);
-        if (connectClient!=null && connectClient.isValidate()) {
-            return connectClient;
+        // get pool, connections created by pool
+        ConnectClientPool clientPool = connectClientPoolMap.get(address);
+        if (clientPool == null) {
+            connectClientPoolMap.putIfAbsent(address, new ConnectClientPool(address, connectClientImpl, xxlRpcReferenceBean));
+            clientPool = connectClientPoolMap.get(address);
         }
-
-        // lock
-        Object clientLock = connectClientLockMap.get(address);
-        if (clientLock == null) {
-            connectClientLockMap.putIfAbsent(address, new Object());
-            clientLock = connectClientLockMap.get(address);
-        }
-
-        // remove-create new client
-        synchronized (clientLock) {
-
-            // get-valid client, avlid repeat
-            connectClient = connectClientMap.get(address);
-            if (connectClient!=null && connectClient.isValidate()) {
-                return connectClient;
-            }
-
-            // remove old
-            if (connectClient != null) {
-                connectClient.close();
-                connectClientMap.remove(address);
-            }
-
-            // set pool
-            ConnectClient connectClient_new = connectClientImpl.newInstance();
-            try {
-                connectClient_new.init(address, xxlRpcReferenceBean.getSerializerInstance(), xxlRpcReferenceBean.getInvokerFactory());
-                connectClientMap.put(address, connectClient_new);
-            } catch (Exception e) {
-                connectClient_new.close();
-                throw e;
-            }
-
-            return connectClient_new;
-        }
-
+        return clientPool;
     }
 
 }
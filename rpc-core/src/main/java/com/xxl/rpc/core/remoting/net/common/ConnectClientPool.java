@@ -0,0 +1,366 @@
+package com.xxl.rpc.core.remoting.net.common;
+
+import com.xxl.rpc.core.remoting.invoker.reference.RpcReferenceBean;
+import com.xxl.rpc.core.remoting.net.params.Handshake;
+import com.xxl.rpc.core.util.RpcException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * connect client pool of one address, [minConnections, maxConnections] channels
+ *
+ *      select: LEAST_PENDING or ROUND;
+ *      grow: when no valid connection, or selected connection has GROW_PENDING requests in flight;
+ *      connect: async on connect thread, one at a time per address, callers share the connect future
+ *          (wait bounded by connectTimeout, or fail fast by connectFailFast); connect fail quarantines the address (AddressQuarantine);
+ *      shrink: connections beyond minConnections, idle for IDLE_TIMEOUT, are closed;
+ */
+@Slf4j
+public class ConnectClientPool {
+
+    public static final int GROW_PENDING = 32;
+    public static final long IDLE_TIMEOUT = 60 * 1000;
+    private static final long MAINTAIN_INTERVAL = 1000;
+
+    private final String address;
+    private final Class<? extends ConnectClient> connectClientImpl;
+    private final RpcReferenceBean xxlRpcReferenceBean;
+    private final ConnectionSelect connectionSelect;
+    private final int minConnections;
+    private final int maxConnections;
+
+    private volatile ConnectClient[] connectClients = new ConnectClient[0];      // copy on write
+    private final ReentrantLock growLock = new ReentrantLock();                 // guard connectClients and connectFuture, never held while connecting
+    private volatile CompletableFuture<ConnectClient> connectFuture;             // connect in progress, shared
+    private volatile boolean closed = false;
+    private final AtomicInteger roundIndex = new AtomicInteger();
+    private final AtomicLong lastMaintainTime = new AtomicLong(System.currentTimeMillis());
+
+    public ConnectClientPool(String address, Class<? extends ConnectClient> connectClientImpl, RpcReferenceBean xxlRpcReferenceBean) {
+        this.address = address;
+        this.connectClientImpl = connectClientImpl;
+        this.xxlRpcReferenceBean = xxlRpcReferenceBean;
+        this.connectionSelect = xxlRpcReferenceBean.getConnectionSelect();
+        this.maxConnections = Math.max(1, xxlRpcReferenceBean.getMaxConnections());
+        this.minConnections = Math.min(Math.max(1, xxlRpcReferenceBean.getMinConnections()), this.maxConnections);
+    }
+
+    /**
+     * get a valid connect client, create if necessary
+     */
+    public ConnectClient acquire() throws Exception {
+        maintain();
+
+        ConnectClient connectClient = select(connectClients);
+        if (connectClient == null) {
+            // no valid connection, wait for connect
+            connectClient = awaitConnect(xxlRpcReferenceBean.isConnectFailFast(), connectWaitTimeout());
+        } else if (connectClient.getPendingCount() >= GROW_PENDING
+                && connectClients.length < maxConnections) {
+            // busy, grow in background, keep current connection
+            connectAsync();
+        }
+        return connectClient;
+    }
+
+    /**
+     * open connections up to minConnections, ahead of first request (warm up)
+     */
+    public void connect() throws Exception {
+        for (int validCount = validCount(); validCount < minConnections; validCount++) {
+            awaitConnect(false, connectWaitTimeout());
+        }
+    }
+
+    private int validCount() {
+        int validCount = 0;
+        for (ConnectClient connectClient : connectClients) {
+            if (connectClient.isValidate()) {
+                validCount++;
+            }
+        }
+        return validCount;
+    }
+
+    /**
+     * wait connect future, shared by callers of this address
+     */
+    private ConnectClient awaitConnect(boolean failFast, long timeoutMillis) throws Exception {
+        if (AddressQuarantine.isQuarantined(address)) {
+            TransportMetrics.CONNECT_REJECTED.increment();
+            throw new RpcException("rpc, address quarantined after connect fail, retry in " + AddressQuarantine.remaining(address) + "ms, address:" + address);
+        }
+
+        CompletableFuture<ConnectClient> connectFuture = connectAsync();
+        if (failFast && !connectFuture.isDone()) {
+            TransportMetrics.CONNECT_REJECTED.increment();
+            throw new RpcException("rpc, address connecting, request rejected, address:" + address);
+        }
+        try {
+            return connectFuture.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RpcException("rpc, connect wait timeout, address:" + address);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : new RpcException(cause);
+        }
+    }
+
+    /**
+     * connect + handshake, not request timeout: cold first call (connection setup) may take longer than a request
+     */
+    private long connectWaitTimeout() {
+        return xxlRpcReferenceBean.getConnectTimeout() + Handshake.HANDSHAKE_TIMEOUT;
+    }
+
+    /**
+     * start connect if none in progress, on connect thread
+     */
+    private CompletableFuture<ConnectClient> connectAsync() {
+        CompletableFuture<ConnectClient> connectFuture = this.connectFuture;
+        if (connectFuture != null) {
+            return connectFuture;
+        }
+        growLock.lock();
+        try {
+            if (this.connectFuture != null) {
+                return this.connectFuture;
+            }
+            final CompletableFuture<ConnectClient> newFuture = new CompletableFuture<>();
+            this.connectFuture = newFuture;
+            try {
+                getConnectThreadPool().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        doConnect(newFuture);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.connectFuture = null;
+                newFuture.completeExceptionally(new RpcException("rpc, connect thread pool rejected, address:" + address));
+            }
+            return newFuture;
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    private void doConnect(CompletableFuture<ConnectClient> future) {
+        ConnectClient connectClient_new = null;
+        Throwable failCause = null;
+        try {
+            connectClient_new = connectClientImpl.newInstance();
+            connectClient_new.init(address, xxlRpcReferenceBean);
+            if (!connectClient_new.isValidate()) {
+                throw new RpcException("rpc, connect client invalid after init (closed), address:" + address);     // init closes and returns on some failures
+            }
+        } catch (Throwable e) {
+            failCause = e;
+            if (connectClient_new != null) {
+                connectClient_new.close();
+            }
+            AddressQuarantine.onConnectFail(address);
+            log.warn(">>>>>>>>>>> rpc connect fail, address quarantined for {}ms, address:{}", AddressQuarantine.remaining(address), address, e);
+        }
+
+        growLock.lock();
+        try {
+            if (failCause == null) {
+                if (closed) {
+                    connectClient_new.close();
+                    failCause = new RpcException("rpc, connect client pool closed, address:" + address);
+                } else {
+                    add(connectClient_new);
+                    AddressQuarantine.onConnectSuccess(address);
+                }
+            }
+            this.connectFuture = null;
+        } finally {
+            growLock.unlock();
+        }
+
+        if (failCause == null) {
+            future.complete(connectClient_new);
+        } else {
+            future.completeExceptionally(failCause);
+        }
+    }
+
+    /**
+     * get a writable connect client, null if none (grow in background if allowed)
+     */
+    public ConnectClient acquireWritable() {
+        ConnectClient selected = null;
+        for (ConnectClient connectClient : connectClients) {
+            if (connectClient.isValidate() && connectClient.isWritable()
+                    && (selected == null || connectClient.getPendingCount() < selected.getPendingCount())) {
+                selected = connectClient;
+            }
+        }
+        if (selected == null && connectClients.length < maxConnections) {
+            // grow in background, caller blocks on current connection
+            connectAsync();
+        }
+        return selected;
+    }
+
+    /**
+     * average ewma rtt of valid connections, -1 if unknown
+     */
+    public long getRttMicros() {
+        long sum = 0;
+        int count = 0;
+        for (ConnectClient connectClient : connectClients) {
+            long rttMicros = connectClient.getRttMicros();
+            if (rttMicros >= 0 && connectClient.isValidate()) {
+                sum += rttMicros;
+                count++;
+            }
+        }
+        return count > 0 ? sum / count : -1;
+    }
+
+    private ConnectClient select(ConnectClient[] connectClients) {
+        if (connectClients.length == 0) {
+            return null;
+        }
+
+        if (connectionSelect == ConnectionSelect.ROUND) {
+            int start = roundIndex.getAndIncrement() & Integer.MAX_VALUE;
+            for (int i = 0; i < connectClients.length; i++) {
+                ConnectClient connectClient = connectClients[(start + i) % connectClients.length];
+                if (connectClient.isValidate()) {
+                    return connectClient;
+                }
+            }
+            return null;
+        }
+
+        // LEAST_PENDING
+        ConnectClient selected = null;
+        int selectedPending = Integer.MAX_VALUE;
+        for (ConnectClient connectClient : connectClients) {
+            int pending = connectClient.getPendingCount();
+            if (pending < selectedPending && connectClient.isValidate()) {
+                selected = connectClient;
+                selectedPending = pending;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * add new connection, remove invalid ones; must hold growLock
+     */
+    private void add(ConnectClient connectClient_new) {
+        List<ConnectClient> connectClientList = new ArrayList<>(connectClients.length + 1);
+        for (ConnectClient connectClient : connectClients) {
+            if (connectClient.isValidate()) {
+                connectClientList.add(connectClient);
+            } else {
+                connectClient.close();
+            }
+        }
+        connectClientList.add(connectClient_new);
+        connectClients = connectClientList.toArray(new ConnectClient[0]);
+
+        log.debug(">>>>>>>>>>> rpc connect client pool grow, address:{}, connections:{}", address, connectClients.length);
+    }
+
+    /**
+     * close invalid connections, and idle ones beyond minConnections
+     */
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        long lastMaintain = lastMaintainTime.get();
+        if (now - lastMaintain < MAINTAIN_INTERVAL || !lastMaintainTime.compareAndSet(lastMaintain, now)) {
+            return;
+        }
+        if (!growLock.tryLock()) {
+            return;
+        }
+        try {
+            ConnectClient[] connectClients = this.connectClients;
+            List<ConnectClient> connectClientList = new ArrayList<>(connectClients.length);
+            List<ConnectClient> closeList = new ArrayList<>();
+            for (ConnectClient connectClient : connectClients) {
+                boolean idle = connectClient.getPendingCount() <= 0 && now - connectClient.getLastSendTime() > IDLE_TIMEOUT;
+                if (!connectClient.isValidate() || (idle && connectClientList.size() >= minConnections)) {
+                    closeList.add(connectClient);
+                } else {
+                    connectClientList.add(connectClient);
+                }
+            }
+            if (closeList.isEmpty()) {
+                return;
+            }
+
+            // remove from pool first, then close
+            this.connectClients = connectClientList.toArray(new ConnectClient[0]);
+            for (ConnectClient connectClient : closeList) {
+                connectClient.close();
+            }
+            log.debug(">>>>>>>>>>> rpc connect client pool shrink, address:{}, connections:{}", address, connectClientList.size());
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    // ---------------------- connect thread pool ----------------------
+
+    private static volatile ThreadPoolExecutor connectThreadPool;
+
+    /**
+     * connect threads, shared by pools of all addresses; at most one connect per address in progress
+     */
+    private static ThreadPoolExecutor getConnectThreadPool() {
+        if (connectThreadPool == null) {
+            synchronized (ConnectClientPool.class) {
+                if (connectThreadPool == null) {
+                    connectThreadPool = new ThreadPoolExecutor(
+                            0,
+                            256,
+                            60L,
+                            TimeUnit.SECONDS,
+                            new SynchronousQueue<Runnable>(),
+                            new ThreadFactory() {
+                                @Override
+                                public Thread newThread(Runnable r) {
+                                    Thread thread = new Thread(r, "rpc, ConnectClientPool-connectThreadPool-" + r.hashCode());
+                                    thread.setDaemon(true);
+                                    return thread;
+                                }
+                            });
+                }
+            }
+        }
+        return connectThreadPool;
+    }
+
+    public void close() {
+        growLock.lock();
+        try {
+            closed = true;
+            for (ConnectClient connectClient : connectClients) {
+                connectClient.close();
+            }
+            connectClients = new ConnectClient[0];
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.xxl.rpc.core.remoting.net.common;
+
+/**
+ * connection select of connect client pool
+ *
+ *      LEAST_PENDING: connection with least requests in flight;
+ *      ROUND: round robin;
+ */
+public enum ConnectionSelect {
+
+    LEAST_PENDING,
+    ROUND;
+
+    public static ConnectionSelect match(String name, ConnectionSelect defaultSelect) {
+        for (ConnectionSelect item : ConnectionSelect.values()) {
+            if (item.name().equals(name)) {
+                return item;
+            }
+        }
+        return defaultSelect;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.xxl.rpc.core.remoting.net.common;
+
+import com.xxl.rpc.core.remoting.invoker.reference.RpcReferenceBean;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * transport tuning of reference, shared by netty clients
+ *
+ *      0 = keep system / netty default;
+ */
+@Slf4j
+public class NettyClientOptions {
+
+    public static void apply(Bootstrap bootstrap, RpcReferenceBean xxlRpcReferenceBean, TransportMode transportMode) {
+        applyCommon(bootstrap, xxlRpcReferenceBean);
+
+        // epoll only
+        if (transportMode.isEpoll() && xxlRpcReferenceBean.isTcpQuickAck()) {
+            bootstrap.option(EpollChannelOption.TCP_QUICKACK, true);
+        }
+    }
+
+    /**
+     * unix domain socket, no tcp option
+     */
+    public static void applyDomainSocket(Bootstrap bootstrap, RpcReferenceBean xxlRpcReferenceBean) {
+        applyCommon(bootstrap, xxlRpcReferenceBean);
+    }
+
+    private static void applyCommon(Bootstrap bootstrap, RpcReferenceBean xxlRpcReferenceBean) {
+
+        // write buffer water mark, for backpressure
+        int low = xxlRpcReferenceBean.getWriteBufferLowWaterMark();
+        int high = xxlRpcReferenceBean.getWriteBufferHighWaterMark();
+        if (low > 0 || high > 0) {
+            if (low > 0 && high > 0 && low <= high) {
+                bootstrap.option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(low, high));
+            } else {
+                log.warn(">>>>>>>>>>> rpc reference write buffer water mark invalid, low:{}, high:{}, use default.", low, high);
+            }
+        }
+    }
+
+}
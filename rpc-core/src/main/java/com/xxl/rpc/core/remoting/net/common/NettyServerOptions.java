@@ -0,0 +1,65 @@
+package com.xxl.rpc.core.remoting.net.common;
+
+import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * transport tuning of provider, shared by netty servers
+ *
+ *      0 = keep system / netty default;
+ */
+@Slf4j
+public class NettyServerOptions {
+
+    public static void apply(ServerBootstrap bootstrap, RpcProviderFactory xxlRpcProviderFactory, TransportMode transportMode) {
+        applyCommon(bootstrap, xxlRpcProviderFactory);
+
+        // epoll only
+        if (transportMode.isEpoll()) {
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, xxlRpcProviderFactory.isReusePort())
+                    .childOption(EpollChannelOption.TCP_QUICKACK, xxlRpcProviderFactory.isTcpQuickAck());
+        }
+    }
+
+    /**
+     * unix domain socket, no tcp option
+     */
+    public static void applyDomainSocket(ServerBootstrap bootstrap, RpcProviderFactory xxlRpcProviderFactory) {
+        applyCommon(bootstrap, xxlRpcProviderFactory);
+    }
+
+    private static void applyCommon(ServerBootstrap bootstrap, RpcProviderFactory xxlRpcProviderFactory) {
+
+        // allocator
+        bootstrap.option(ChannelOption.ALLOCATOR, xxlRpcProviderFactory.getAllocator().allocator)
+                .childOption(ChannelOption.ALLOCATOR, xxlRpcProviderFactory.getAllocator().allocator);
+
+        // socket
+        if (xxlRpcProviderFactory.getBacklog() > 0) {
+            bootstrap.option(ChannelOption.SO_BACKLOG, xxlRpcProviderFactory.getBacklog());
+        }
+        if (xxlRpcProviderFactory.getReceiveBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, xxlRpcProviderFactory.getReceiveBufferSize())     // inherited by accepted socket, set before listen for window scale
+                    .childOption(ChannelOption.SO_RCVBUF, xxlRpcProviderFactory.getReceiveBufferSize());
+        }
+        if (xxlRpcProviderFactory.getSendBufferSize() > 0) {
+            bootstrap.childOption(ChannelOption.SO_SNDBUF, xxlRpcProviderFactory.getSendBufferSize());
+        }
+
+        // write buffer water mark
+        int low = xxlRpcProviderFactory.getWriteBufferLowWaterMark();
+        int high = xxlRpcProviderFactory.getWriteBufferHighWaterMark();
+        if (low > 0 || high > 0) {
+            if (low > 0 && high > 0 && low <= high) {
+                bootstrap.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(low, high));
+            } else {
+                log.warn(">>>>>>>>>>> rpc provider write buffer water mark invalid, low:{}, high:{}, use default.", low, high);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.xxl.rpc.core.remoting.net.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * transport metrics of this jvm, counters since start + gauges
+ */
+public class TransportMetrics {
+
+    // ---------------------- backpressure ----------------------
+
+    /**
+     * gauge, client channels not writable now
+     */
+    public static final AtomicLong UNWRITABLE_CHANNELS = new AtomicLong();
+    /**
+     * counter, client channels turned unwritable
+     */
+    public static final LongAdder UNWRITABLE_EVENTS = new LongAdder();
+
+    public static final LongAdder BACKPRESSURE_BLOCKED = new LongAdder();
+    public static final LongAdder BACKPRESSURE_REJECTED = new LongAdder();
+    public static final LongAdder BACKPRESSURE_SPILLED = new LongAdder();
+
+
+    // ---------------------- server flush ----------------------
+
+    /**
+     * counter, responses written by netty server; responses / flushes = coalescing ratio
+     */
+    public static final LongAdder SERVER_RESPONSES = new LongAdder();
+    public static final LongAdder SERVER_FLUSHES = new LongAdder();
+
+    /**
+     * counter, requests cancelled by client (NettyCancel) while queued, skipped by netty server
+     */
+    public static final LongAdder SERVER_CANCELLED = new LongAdder();
+
+
+    // ---------------------- frame ----------------------
+
+    /**
+     * histogram, length of netty frames decoded (both sides, beat excluded); bucket i counts frames <= FRAME_LENGTH_BUCKETS[i], last one the rest
+     */
+    private static final int[] FRAME_LENGTH_BUCKETS = {256, 1024, 4 * 1024, 16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024};
+    private static final String[] FRAME_LENGTH_NAMES = {"256B", "1K", "4K", "16K", "64K", "256K", "1M"};
+    private static final LongAdder[] FRAME_LENGTH_COUNTS = new LongAdder[FRAME_LENGTH_BUCKETS.length + 1];
+    static {
+        for (int i = 0; i < FRAME_LENGTH_COUNTS.length; i++) {
+            FRAME_LENGTH_COUNTS[i] = new LongAdder();
+        }
+    }
+    /**
+     * counter, frames over max frame length, rejected by header
+     */
+    public static final LongAdder FRAME_REJECTED = new LongAdder();
+
+    public static void recordFrameLength(int frameLength) {
+        int i = 0;
+        while (i < FRAME_LENGTH_BUCKETS.length && frameLength > FRAME_LENGTH_BUCKETS[i]) {
+            i++;
+        }
+        FRAME_LENGTH_COUNTS[i].increment();
+    }
+
+
+    // ---------------------- local ----------------------
+
+    /**
+     * counter, calls short-circuited to provider of this jvm (LocalClient)
+     */
+    public static final LongAdder LOCAL_CALLS = new LongAdder();
+    /**
+     * counter, calls of LocalClient sent remote, service not provided in this jvm
+     */
+    public static final LongAdder LOCAL_FALLBACKS = new LongAdder();
+
+
+    // ---------------------- connect ----------------------
+
+    /**
+     * counter, connect fails, address quarantined after each (AddressQuarantine)
+     */
+    public static final LongAdder CONNECT_FAILS = new LongAdder();
+    /**
+     * counter, calls failed fast: address quarantined, or connecting with connectFailFast
+     */
+    public static final LongAdder CONNECT_REJECTED = new LongAdder();
+
+
+    // ---------------------- ping ----------------------
+
+    public static final LongAdder PINGS = new LongAdder();
+    public static final LongAdder PONGS = new LongAdder();
+    /**
+     * counter, client connections closed by missed pongs
+     */
+    public static final LongAdder PING_CLOSED = new LongAdder();
+
+
+    // ---------------------- request ----------------------
+
+    /**
+     * counter, pending requests expired by timeout timer (RpcInvokerFactory.scheduleTimeout)
+     */
+    public static final LongAdder REQUEST_EXPIRED = new LongAdder();
+
+
+    // ---------------------- snapshot ----------------------
+
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        snapshot.put("backpressure.unwritableChannels", UNWRITABLE_CHANNELS.get());
+        snapshot.put("backpressure.unwritableEvents", UNWRITABLE_EVENTS.sum());
+        snapshot.put("backpressure.blocked", BACKPRESSURE_BLOCKED.sum());
+        snapshot.put("backpressure.rejected", BACKPRESSURE_REJECTED.sum());
+        snapshot.put("backpressure.spilled", BACKPRESSURE_SPILLED.sum());
+        snapshot.put("server.responses", SERVER_RESPONSES.sum());
+        snapshot.put("server.flushes", SERVER_FLUSHES.sum());
+        snapshot.put("server.cancelled", SERVER_CANCELLED.sum());
+        for (int i = 0; i < FRAME_LENGTH_BUCKETS.length; i++) {
+            snapshot.put("frame.length.le" + FRAME_LENGTH_NAMES[i], FRAME_LENGTH_COUNTS[i].sum());
+        }
+        snapshot.put("frame.length.gt" + FRAME_LENGTH_NAMES[FRAME_LENGTH_NAMES.length - 1], FRAME_LENGTH_COUNTS[FRAME_LENGTH_BUCKETS.length].sum());
+        snapshot.put("frame.rejected", FRAME_REJECTED.sum());
+        snapshot.put("local.calls", LOCAL_CALLS.sum());
+        snapshot.put("local.fallbacks", LOCAL_FALLBACKS.sum());
+        snapshot.put("connect.fails", CONNECT_FAILS.sum());
+        snapshot.put("connect.rejected", CONNECT_REJECTED.sum());
+        snapshot.put("connect.quarantined", (long) AddressQuarantine.quarantinedCount());
+        snapshot.put("request.expired", REQUEST_EXPIRED.sum());
+        snapshot.put("ping.pings", PINGS.sum());
+        snapshot.put("ping.pongs", PONGS.sum());
+        snapshot.put("ping.closed", PING_CLOSED.sum());
+        for (Map.Entry<String, Long> rtt : ConnectClient.rttSnapshot().entrySet()) {
+            snapshot.put("ping.rttMicros." + rtt.getKey(), rtt.getValue());
+        }
+        return snapshot;
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.xxl.rpc.core.remoting.net.common;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * netty transport mode
+ *
+ *      NIO: jdk nio, all platform;
+ *      EPOLL: linux native epoll (bundled by netty-all), support SO_REUSEPORT / TCP_QUICKACK; fall back to NIO if unavailable;
+ *      AUTO: EPOLL if available, otherwise NIO;
+ */
+@Slf4j
+public enum TransportMode {
+
+    NIO,
+    EPOLL,
+    AUTO;
+
+    /**
+     * effective mode, NIO or EPOLL
+     */
+    public TransportMode resolve() {
+        if (this == NIO) {
+            return NIO;
+        }
+        if (Epoll.isAvailable()) {
+            return EPOLL;
+        }
+        if (this == EPOLL) {
+            log.warn(">>>>>>>>>>> rpc transport EPOLL unavailable, fall back to NIO.", Epoll.unavailabilityCause());
+        }
+        return NIO;
+    }
+
+    public boolean isEpoll() {
+        return this != NIO && Epoll.isAvailable();
+    }
+
+    /**
+     * @param nThreads  0 = netty default
+     */
+    public EventLoopGroup newEventLoopGroup(int nThreads) {
+        return isEpoll() ? new EpollEventLoopGroup(nThreads) : new NioEventLoopGroup(nThreads);
+    }
+
+    public Class<? extends SocketChannel> socketChannelClass() {
+        return isEpoll() ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    public Class<? extends ServerSocketChannel> serverSocketChannelClass() {
+        return isEpoll() ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public static TransportMode match(String name, TransportMode defaultMode) {
+        for (TransportMode item : TransportMode.values()) {
+            if (item.name().equals(name)) {
+                return item;
+            }
+        }
+        return defaultMode;
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.xxl.rpc.core.remoting.net.impl.local.client;
+
+import com.xxl.rpc.core.remoting.invoker.RpcInvokerFactory;
+import com.xxl.rpc.core.remoting.invoker.reference.RpcReferenceBean;
+import com.xxl.rpc.core.remoting.net.Client;
+import com.xxl.rpc.core.remoting.net.common.TransportMetrics;
+import com.xxl.rpc.core.remoting.net.impl.netty.client.NettyClient;
+import com.xxl.rpc.core.remoting.net.params.RpcRequest;
+import com.xxl.rpc.core.remoting.net.params.RpcResponse;
+import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
+import com.xxl.rpc.core.serialize.Serializer;
+import com.xxl.rpc.core.util.RpcException;
+import com.xxl.rpc.core.util.ThrowableUtil;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * local client, in-jvm short-circuit: provider started in this jvm is invoked directly, no socket and no serialize
+ *
+ *      invoke on provider's local business pool, response by future as remote call; timeout and call type work the same;
+ *      localCopy: copy request and response by serializer, keep value semantics of remote call (callee / caller mutation not shared);
+ *      service not provided in this jvm: fall back to NettyClient, by address;
+ */
+public class LocalClient extends Client {
+
+	private final NettyClient remoteClient = new NettyClient();
+
+	@Override
+	public void init(RpcReferenceBean xxlRpcReferenceBean) {
+		super.init(xxlRpcReferenceBean);
+		remoteClient.init(xxlRpcReferenceBean);
+	}
+
+	@Override
+	public void asyncSend(String address, RpcRequest xxlRpcRequest) throws Exception {
+
+		// match local provider
+		String serviceKey = RpcProviderFactory.makeServiceKey(xxlRpcRequest.getClassName(), xxlRpcRequest.getVersion());
+		final RpcProviderFactory providerFactory = RpcProviderFactory.getLocalProvider(serviceKey);
+		if (providerFactory == null) {
+			TransportMetrics.LOCAL_FALLBACKS.increment();
+			remoteClient.asyncSend(address, xxlRpcRequest);
+			return;
+		}
+
+		// copy request, on caller thread
+		final RpcInvokerFactory invokerFactory = xxlRpcReferenceBean.getInvokerFactory();
+		final Serializer copySerializer = xxlRpcReferenceBean.isLocalCopy() ? xxlRpcReferenceBean.getSerializerInstance() : null;
+		final RpcRequest localRequest = copySerializer != null ? copy(copySerializer, xxlRpcRequest, RpcRequest.class) : xxlRpcRequest;
+
+		// invoke + notify
+		try {
+			providerFactory.executeLocalInvoke(new Runnable() {
+				@Override
+				public void run() {
+					RpcResponse xxlRpcResponse;
+					try {
+						xxlRpcResponse = providerFactory.invokeService(localRequest);
+						if (copySerializer != null) {
+							xxlRpcResponse = copy(copySerializer, xxlRpcResponse, RpcResponse.class);
+						}
+					} catch (Throwable e) {
+						xxlRpcResponse = new RpcResponse();
+						xxlRpcResponse.setRequestId(localRequest.getRequestId());
+						xxlRpcResponse.setErrorMsg(ThrowableUtil.toString(e));
+					}
+					invokerFactory.notifyInvokerFuture(localRequest.getRequestId(), xxlRpcResponse);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			throw new RpcException("rpc local invoke rejected, provider business pool exhausted, serviceKey:" + serviceKey);
+		}
+		TransportMetrics.LOCAL_CALLS.increment();
+	}
+
+	/**
+	 * service provided in this jvm needs no connection
+	 */
+	@Override
+	public void connect(String address) throws Exception {
+		String serviceKey = RpcProviderFactory.makeServiceKey(xxlRpcReferenceBean.getIface().getName(), xxlRpcReferenceBean.getVersion());
+		if (RpcProviderFactory.getLocalProvider(serviceKey) == null) {
+			remoteClient.connect(address);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T copy(Serializer serializer, T obj, Class<T> clazz) {
+		return (T) serializer.deserialize(serializer.serialize(obj), clazz);
+	}
+
+}
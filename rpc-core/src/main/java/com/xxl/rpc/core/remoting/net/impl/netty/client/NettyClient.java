@@ -18,4 +18,9 @@ public class NettyClient extends Client {
 		ConnectClient.asyncSend(xxlRpcRequest, address, connectClientImpl, xxlRpcReferenceBean);
 	}
 
+	@Override
+	public void connect(String address) throws Exception {
+		ConnectClient.connect(address, connectClientImpl, xxlRpcReferenceBean);
+	}
+
 }
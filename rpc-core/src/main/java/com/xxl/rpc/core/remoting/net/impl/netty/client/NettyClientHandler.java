@@ -1,36 +1,175 @@
 package com.xxl.rpc.core.remoting.net.impl.netty.client;
 
 import com.xxl.rpc.core.remoting.invoker.RpcInvokerFactory;
+import com.xxl.rpc.core.remoting.net.common.TransportMetrics;
+import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyFrame;
+import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyFrameTooLongException;
+import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyPing;
 import com.xxl.rpc.core.remoting.net.params.Beat;
 import com.xxl.rpc.core.remoting.net.params.RpcResponse;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.timeout.IdleStateEvent;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 /**
  * rpc netty client handler
  *
+ *      ping: every pingInterval on event loop, first one once connected; pong updates rtt of connection (ewma);
+ *      pingMaxMissed pings in a row without pong, connection closed; only once server ever answered (old server never pongs);
+ *
  * @author mzj 2015-10-31 18:00:27
  */
 @Slf4j
-@AllArgsConstructor
-public class NettyClientHandler extends SimpleChannelInboundHandler<RpcResponse> {
+public class NettyClientHandler extends SimpleChannelInboundHandler<Object> {
+
+	private final RpcInvokerFactory xxlRpcInvokerFactory;
+	private final NettyConnectClient nettyConnectClient;
+	private final long pingInterval;		// ms, 0 = no ping
+	private final int pingMaxMissed;
 
-	private RpcInvokerFactory xxlRpcInvokerFactory;
-	private NettyConnectClient nettyConnectClient;
+	// ping state, event loop only
+	private ScheduledFuture<?> pingFuture;
+	private boolean pingOutstanding = false;
+	private boolean pongSupported = false;
+	private int missedPongs = 0;
+
+	public NettyClientHandler(RpcInvokerFactory xxlRpcInvokerFactory, NettyConnectClient nettyConnectClient, long pingInterval, int pingMaxMissed) {
+		this.xxlRpcInvokerFactory = xxlRpcInvokerFactory;
+		this.nettyConnectClient = nettyConnectClient;
+		this.pingInterval = pingInterval;
+		this.pingMaxMissed = pingMaxMissed;
+	}
 
 
 	@Override
-	protected void channelRead0(ChannelHandlerContext ctx, RpcResponse xxlRpcResponse) throws Exception {
+	protected void channelRead0(ChannelHandlerContext ctx, Object msg) throws Exception {
+
+		// pong
+		if (msg instanceof NettyPing) {
+			NettyPing ping = (NettyPing) msg;
+			if (ping.isPong()) {
+				onPong(ping.getPayload());
+			}
+			return;
+		}
+
+		// offloadSerialize, deserialize on decode thread; inline if exhausted
+		if (msg instanceof NettyFrame) {
+			final NettyFrame frame = (NettyFrame) msg;
+			Runnable decodeTask = new Runnable() {
+				@Override
+				public void run() {
+					notifyResponse(frame);
+				}
+			};
+			try {
+				xxlRpcInvokerFactory.executeResponseDecode(decodeTask);
+			} catch (Exception e) {
+				decodeTask.run();
+			}
+			return;
+		}
 
 		// notify response
+		RpcResponse xxlRpcResponse = (RpcResponse) msg;
 		xxlRpcInvokerFactory.notifyInvokerFuture(xxlRpcResponse.getRequestId(), xxlRpcResponse);
 	}
 
+	private void notifyResponse(NettyFrame frame) {
+		RpcResponse xxlRpcResponse;
+		try {
+			xxlRpcResponse = (RpcResponse) frame.deserialize();
+		} catch (Exception e) {
+			log.error(">>>>>>>>>>> rpc netty client deserialize response fail, requestId:{}", frame.getRequestId(), e);
+
+			// fail the request, by id of frame header
+			xxlRpcResponse = new RpcResponse();
+			xxlRpcResponse.setRequestId(frame.getRequestId());
+			xxlRpcResponse.setErrorMsg("rpc, deserialize response fail: " + e);
+		}
+
+		// notify response
+		xxlRpcInvokerFactory.notifyInvokerFuture(frame.getRequestId(), xxlRpcResponse);
+	}
+
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		nettyConnectClient.onWritabilityChanged();
+		super.channelWritabilityChanged(ctx);
+	}
+
+	@Override
+	public void channelActive(final ChannelHandlerContext ctx) throws Exception {
+		if (pingInterval > 0) {
+			pingFuture = ctx.executor().scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					ping(ctx);
+				}
+			}, 0, pingInterval, TimeUnit.MILLISECONDS);
+		}
+		super.channelActive(ctx);
+	}
+
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		if (pingFuture != null) {
+			pingFuture.cancel(false);
+		}
+		nettyConnectClient.onWritabilityChanged();
+		super.channelInactive(ctx);
+	}
+
+
+	// ---------------------- ping ----------------------
+
+	private void ping(ChannelHandlerContext ctx) {
+		if (pingOutstanding) {
+			missedPongs++;
+			if (pongSupported && missedPongs >= pingMaxMissed) {
+				log.warn(">>>>>>>>>>> rpc netty client close connection, {} pings without pong, channel:{}", missedPongs, ctx.channel());
+				TransportMetrics.PING_CLOSED.increment();
+				pingFuture.cancel(false);
+				ctx.close();
+				return;
+			}
+		}
+		pingOutstanding = true;
+		ctx.writeAndFlush(NettyPing.encode(ctx.alloc(), false, System.nanoTime()));
+		TransportMetrics.PINGS.increment();
+	}
+
+	private void onPong(long payload) {
+		pingOutstanding = false;
+		pongSupported = true;
+		missedPongs = 0;
+		nettyConnectClient.onRtt(System.nanoTime() - payload);
+		TransportMetrics.PONGS.increment();
+	}
+
 	@Override
 	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		// response over max frame length, body skipped by decoder; fail the request, channel kept unless serializer out of sync
+		if (cause instanceof NettyFrameTooLongException) {
+			NettyFrameTooLongException tooLongException = (NettyFrameTooLongException) cause;
+			if (tooLongException.getType() == NettyFrame.TYPE_RESPONSE) {
+				RpcResponse xxlRpcResponse = new RpcResponse();
+				xxlRpcResponse.setRequestId(tooLongException.getRequestId());
+				xxlRpcResponse.setErrorMsg(tooLongException.getMessage());
+
+				xxlRpcInvokerFactory.notifyInvokerFuture(tooLongException.getRequestId(), xxlRpcResponse);
+			}
+			if (tooLongException.isCloseChannel()) {
+				log.warn(">>>>>>>>>>> rpc netty client close channel, connection serializer out of sync after frame rejected:{}", ctx.channel());
+				ctx.close();
+			}
+			return;
+		}
+
 		log.error(">>>>>>>>>>> rpc netty client caught exception", cause);
 		ctx.close();
 	}
@@ -41,7 +180,7 @@ public class NettyClientHandler extends SimpleChannelInboundHandler<RpcResponse>
 			/*ctx.channel().close();      // close idle channel
 			log.debug(">>>>>>>>>>> rpc netty client close an idle channel.");*/
 
-			nettyConnectClient.send(Beat.BEAT_PING);	// beat N, close if fail(may throw error)
+			ctx.writeAndFlush(Beat.BEAT_PING);	// beat N, on event loop
 			log.debug(">>>>>>>>>>> rpc netty client send beat-ping.");
 
 		} else {
@@ -1,26 +1,34 @@
 package com.xxl.rpc.core.remoting.net.impl.netty.client;
 
 import com.xxl.rpc.core.remoting.invoker.RpcInvokerFactory;
+import com.xxl.rpc.core.remoting.invoker.reference.RpcReferenceBean;
+import com.xxl.rpc.core.remoting.net.common.ChannelWriter;
 import com.xxl.rpc.core.remoting.net.common.ConnectClient;
+import com.xxl.rpc.core.remoting.net.common.NettyClientOptions;
+import com.xxl.rpc.core.remoting.net.common.TransportMode;
+import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyCancel;
 import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyDecoder;
 import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyEncoder;
-import com.xxl.rpc.core.remoting.net.impl.netty_http.client.NettyHttpConnectClient;
 import com.xxl.rpc.core.remoting.net.params.BaseCallback;
 import com.xxl.rpc.core.remoting.net.params.Beat;
 import com.xxl.rpc.core.remoting.net.params.RpcRequest;
 import com.xxl.rpc.core.remoting.net.params.RpcResponse;
 import com.xxl.rpc.core.serialize.Serializer;
 import com.xxl.rpc.core.util.IpUtil;
+import com.xxl.rpc.core.util.RpcException;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.timeout.IdleStateHandler;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -30,52 +38,57 @@ import java.util.concurrent.TimeUnit;
  */
 @Slf4j
 public class NettyConnectClient extends ConnectClient {
-    private static NioEventLoopGroup nioEventLoopGroup;
+    private static final Map<TransportMode, EventLoopGroup> eventLoopGroupMap = new EnumMap<>(TransportMode.class);      // shared by clients of same mode
 
     private Channel channel;
+    private ChannelWriter channelWriter;
+    private Serializer offloadSerializer;       // offloadSerialize, serialize on caller thread; null = by encoder on io thread
 
 
     @Override
-    public void init(String address, final Serializer serializer, final RpcInvokerFactory xxlRpcInvokerFactory) throws Exception {
+    public void init(String address, final RpcReferenceBean xxlRpcReferenceBean) throws Exception {
+        final Serializer serializer = xxlRpcReferenceBean.getSerializerInstance();
+        final RpcInvokerFactory xxlRpcInvokerFactory = xxlRpcReferenceBean.getInvokerFactory();
+        boolean unix = IpUtil.isUnixAddress(address);
+        TransportMode transportMode = unix ? TransportMode.EPOLL : xxlRpcReferenceBean.getTransportMode().resolve();      // unix domain socket, epoll only
+        if (unix && !Epoll.isAvailable()) {
+            throw new RpcException("rpc netty client, unix domain socket requires epoll, address:" + address, Epoll.unavailabilityCause());
+        }
+
         // address
         Object[] array = IpUtil.parseIpPort(address);
         String host = (String) array[0];
         int port = (int) array[1];
 
-        // group
-        if (nioEventLoopGroup == null) {
-            synchronized (NettyHttpConnectClient.class) {
-                if (nioEventLoopGroup == null) {
-                    nioEventLoopGroup = new NioEventLoopGroup();
-                    xxlRpcInvokerFactory.addStopCallBack(new BaseCallback() {
-                        @Override
-                        public void run() throws Exception {
-                            nioEventLoopGroup.shutdownGracefully();
-                        }
-                    });
-                }
-            }
-        }
-
         // init
         final NettyConnectClient thisClient = this;
         Bootstrap bootstrap = new Bootstrap();
-        bootstrap.group(nioEventLoopGroup)
-                .channel(NioSocketChannel.class)
-                .handler(new ChannelInitializer<SocketChannel>() {
+        bootstrap.group(getEventLoopGroup(transportMode, xxlRpcInvokerFactory))
+                .handler(new ChannelInitializer<Channel>() {
                     @Override
-                    public void initChannel(SocketChannel channel) throws Exception {
+                    public void initChannel(Channel channel) throws Exception {
+                        Serializer connectionSerializer = serializer.forConnection();      // shared by encoder and decoder of this channel
                         channel.pipeline()
                                 .addLast(new IdleStateHandler(0, 0, Beat.BEAT_INTERVAL, TimeUnit.SECONDS))    // beat N, close if fail
-                                .addLast(new NettyEncoder(RpcRequest.class, serializer))
-                                .addLast(new NettyDecoder(RpcResponse.class, serializer))
-                                .addLast(new NettyClientHandler(xxlRpcInvokerFactory, thisClient));
+                                .addLast(new NettyEncoder(RpcRequest.class, connectionSerializer))
+                                .addLast(new NettyDecoder(RpcResponse.class, connectionSerializer, xxlRpcReferenceBean.isOffloadSerialize(), xxlRpcReferenceBean.getMaxFrameLength()))
+                                .addLast(new NettyClientHandler(xxlRpcInvokerFactory, thisClient, xxlRpcReferenceBean.getPingInterval(), xxlRpcReferenceBean.getPingMaxMissed()));
                     }
                 })
-                .option(ChannelOption.TCP_NODELAY, true)
-                .option(ChannelOption.SO_KEEPALIVE, true)
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 10000);
-        this.channel = bootstrap.connect(host, port).sync().channel();
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, xxlRpcReferenceBean.getConnectTimeout());
+        if (unix) {
+            bootstrap.channel(EpollDomainSocketChannel.class);
+            NettyClientOptions.applyDomainSocket(bootstrap, xxlRpcReferenceBean);
+            this.channel = bootstrap.connect(new DomainSocketAddress(host)).sync().channel();
+        } else {
+            bootstrap.channel(transportMode.socketChannelClass())
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .option(ChannelOption.SO_KEEPALIVE, true);
+            NettyClientOptions.apply(bootstrap, xxlRpcReferenceBean, transportMode);
+            this.channel = bootstrap.connect(host, port).sync().channel();
+        }
+        this.channelWriter = new ChannelWriter(this.channel, xxlRpcInvokerFactory);
+        this.offloadSerializer = xxlRpcReferenceBean.isOffloadSerialize() ? serializer : null;
 
         // valid
         if (!isValidate()) {
@@ -83,10 +96,34 @@ public class NettyConnectClient extends ConnectClient {
             return;
         }
 
+        // handshake, method table
+        handshake(xxlRpcInvokerFactory, xxlRpcReferenceBean.getAccessToken());
+
         log.debug(">>>>>>>>>>> rpc netty client proxy, connect to server success at host:{}, port:{}", host, port);
     }
 
 
+    private static EventLoopGroup getEventLoopGroup(final TransportMode transportMode, RpcInvokerFactory xxlRpcInvokerFactory) {
+        synchronized (NettyConnectClient.class) {
+            EventLoopGroup eventLoopGroup = eventLoopGroupMap.get(transportMode);
+            if (eventLoopGroup == null) {
+                final EventLoopGroup newEventLoopGroup = transportMode.newEventLoopGroup(0);
+                xxlRpcInvokerFactory.addStopCallBack(new BaseCallback() {
+                    @Override
+                    public void run() throws Exception {
+                        synchronized (NettyConnectClient.class) {
+                            eventLoopGroupMap.remove(transportMode, newEventLoopGroup);
+                        }
+                        newEventLoopGroup.shutdownGracefully();
+                    }
+                });
+                eventLoopGroupMap.put(transportMode, newEventLoopGroup);
+                eventLoopGroup = newEventLoopGroup;
+            }
+            return eventLoopGroup;
+        }
+    }
+
     @Override
     public boolean isValidate() {
         if (this.channel != null) {
@@ -95,6 +132,25 @@ public class NettyConnectClient extends ConnectClient {
         return false;
     }
 
+    @Override
+    public boolean isWritable() {
+        return this.channel != null && this.channel.isWritable();
+    }
+
+    @Override
+    public boolean awaitWritable(long timeoutMillis) throws InterruptedException {
+        return this.channelWriter != null && this.channelWriter.awaitWritable(timeoutMillis);
+    }
+
+    /**
+     * writability changed or channel inactive, wake up blocked senders
+     */
+    void onWritabilityChanged() {
+        if (this.channelWriter != null) {
+            this.channelWriter.onWritabilityChanged();
+        }
+    }
+
     @Override
     public void close() {
         if (this.channel != null && this.channel.isActive()) {
@@ -106,6 +162,19 @@ public class NettyConnectClient extends ConnectClient {
 
     @Override
     public void send(RpcRequest xxlRpcRequest) throws Exception {
-        this.channel.writeAndFlush(xxlRpcRequest).sync();
+        applyMethodId(xxlRpcRequest);
+        if (this.offloadSerializer != null) {
+            this.channelWriter.write(NettyEncoder.encode(this.channel.alloc(), xxlRpcRequest, this.offloadSerializer), xxlRpcRequest.getRequestId());
+            return;
+        }
+        this.channelWriter.write(xxlRpcRequest, xxlRpcRequest.getRequestId());
+    }
+
+    @Override
+    public void cancelRequest(long requestId) {
+        // same writer queue as requests, never ahead of the request cancelled
+        if (this.channel != null && this.channel.isActive()) {
+            this.channelWriter.write(NettyCancel.encode(this.channel.alloc(), requestId), Beat.BEAT_ID);
+        }
     }
 }
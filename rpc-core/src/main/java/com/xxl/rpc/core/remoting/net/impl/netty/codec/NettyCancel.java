@@ -0,0 +1,40 @@
+package com.xxl.rpc.core.remoting.net.impl.netty.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * cancel, beat frame (no body) with FLAGS_CANCEL, requestId = request cancelled by client
+ *
+ *      client: sent once future cancelled, after the request on the same channel (same writer queue);
+ *      server: request still queued (not started) is skipped, no response; started one runs to end, response dropped by client;
+ *      peer of old version drops cancel as plain beat;
+ */
+public final class NettyCancel {
+
+    private final long requestId;
+
+    public NettyCancel(long requestId) {
+        this.requestId = requestId;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * encode frame, written as is (passed through by NettyEncoder)
+     */
+    public static ByteBuf encode(ByteBufAllocator allocator, long requestId) {
+        ByteBuf out = allocator.ioBuffer(NettyFrame.HEADER_LENGTH);
+        out.writeShort(NettyFrame.MAGIC);
+        out.writeByte(NettyFrame.VERSION);
+        out.writeByte(NettyFrame.TYPE_BEAT);
+        out.writeByte(NettyFrame.FLAGS_CANCEL);
+        out.writeByte(0);
+        out.writeLong(requestId);
+        out.writeInt(0);
+        return out;
+    }
+
+}
@@ -1,45 +1,155 @@
 package com.xxl.rpc.core.remoting.net.impl.netty.codec;
 
+import com.xxl.rpc.core.remoting.net.common.TransportMetrics;
+import com.xxl.rpc.core.remoting.net.params.RpcRequest;
 import com.xxl.rpc.core.serialize.Serializer;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
 
 /**
- * decoder
+ * decoder, frame header + body
+ *
+ *      max frame length: checked by header, before body buffered; frame over it skipped as it arrives (never buffered) and
+ *      NettyFrameTooLongException fired with its request id, so handler fails just that request; channel kept only if
+ *      serializer is stateless: a connection-scoped serializer (e.g. class descriptor dictionary) is out of sync with the
+ *      sender once a body is skipped, so input after it is dropped and the channel closed by handler;
+ *      cumulation: merged for small frames, composite (no copy on expand) while a large frame is pending;
  *
  * @author mzj 2015-10-29 19:02:36
  */
 @Slf4j
-@AllArgsConstructor
 public class NettyDecoder extends ByteToMessageDecoder {
 
-    private Class<?> genericClass;
-    private Serializer serializer;
+    private static final int COMPOSITE_THRESHOLD = 64 * 1024;
+
+    private final Class<?> genericClass;
+    private final Serializer serializer;
+    private final boolean offload;        // frame only, emit NettyFrame with retained body; deserialize off the event loop
+    private final int maxFrameLength;
+
+    private final boolean connectionScoped;     // serializer keeps per-connection state, stream unusable after a skipped body
+
+    private long discardBytes = 0;          // body bytes of a rejected frame still to skip
+    private boolean outOfSync = false;      // frame skipped with connection-scoped serializer, drop all input until closed
 
+    public NettyDecoder(Class<?> genericClass, Serializer serializer) {
+        this(genericClass, serializer, false, NettyFrame.DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public NettyDecoder(Class<?> genericClass, Serializer serializer, boolean offload, int maxFrameLength) {
+        this.genericClass = genericClass;
+        this.serializer = serializer;
+        this.offload = offload;
+        this.maxFrameLength = maxFrameLength > 0 ? maxFrameLength : NettyFrame.DEFAULT_MAX_FRAME_LENGTH;
+        this.connectionScoped = serializer.forConnection() != serializer;
+    }
 
     @Override
     public final void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-        if (in.readableBytes() < 4) {
+        if (outOfSync) {
+            in.skipBytes(in.readableBytes());
+            return;
+        }
+
+        // rejected frame, skip body as it arrives
+        if (discardBytes > 0) {
+            int skip = (int) Math.min(discardBytes, in.readableBytes());
+            in.skipBytes(skip);
+            discardBytes -= skip;
+            if (discardBytes > 0) {
+                return;
+            }
+        }
+        if (in.readableBytes() < NettyFrame.HEADER_LENGTH) {
+            return;
+        }
+
+        // header, read without moving reader index until the whole frame arrived
+        int start = in.readerIndex();
+        if (in.getShort(start + NettyFrame.OFFSET_MAGIC) != NettyFrame.MAGIC
+                || in.getByte(start + NettyFrame.OFFSET_VERSION) != NettyFrame.VERSION) {
+            discard(ctx, in, "invalid frame magic or version");
             return;
         }
-        in.markReaderIndex();
-        int dataLength = in.readInt();
-        if (dataLength < 0) {
-            ctx.close();
+        int bodyLength = in.getInt(start + NettyFrame.OFFSET_BODY_LENGTH);
+        if (bodyLength < 0) {
+            discard(ctx, in, "invalid frame body length " + bodyLength);
+            return;
         }
-        if (in.readableBytes() < dataLength) {
-            in.resetReaderIndex();
+        byte type = in.getByte(start + NettyFrame.OFFSET_TYPE);
+        long frameLength = (long) NettyFrame.HEADER_LENGTH + bodyLength;
+        if (frameLength > maxFrameLength) {
+            long requestId = in.getLong(start + NettyFrame.OFFSET_REQUEST_ID);
+            in.skipBytes(NettyFrame.HEADER_LENGTH);
+            discardBytes = bodyLength;
+            TransportMetrics.FRAME_REJECTED.increment();
+            log.warn(">>>>>>>>>>> rpc netty decode reject frame, length:{}, maxFrameLength:{}, requestId:{}, channel:{}", frameLength, maxFrameLength, requestId, ctx.channel());
+
+            // not thrown: handler fails the request; decoding goes on only if serializer is stateless, else channel closed by handler
+            if (connectionScoped) {
+                outOfSync = true;
+                in.skipBytes(in.readableBytes());
+            }
+            ctx.fireExceptionCaught(new NettyFrameTooLongException(type, requestId, connectionScoped,
+                    "rpc frame too large, length:" + frameLength + ", maxFrameLength:" + maxFrameLength));
+            return;
+        }
+        if (in.readableBytes() < frameLength) {
+            // large frame pending, accumulate without copying on every read
+            if (frameLength >= COMPOSITE_THRESHOLD) {
+                setCumulator(COMPOSITE_CUMULATOR);
+            }
             return;	// fix 1024k buffer splice limix
         }
-        byte[] data = new byte[dataLength];
-        in.readBytes(data);
+        setCumulator(MERGE_CUMULATOR);
+        byte serializerId = in.getByte(start + NettyFrame.OFFSET_SERIALIZER);
+        in.skipBytes(NettyFrame.HEADER_LENGTH);
+
+        // beat, drop without touching body (idle state already refreshed by this read); ping-pong and cancel to handler
+        if (type == NettyFrame.TYPE_BEAT) {
+            in.skipBytes(bodyLength);
+            byte flags = in.getByte(start + NettyFrame.OFFSET_FLAGS);
+            if (flags == NettyFrame.FLAGS_PING || flags == NettyFrame.FLAGS_PONG) {
+                out.add(new NettyPing(flags == NettyFrame.FLAGS_PONG, in.getLong(start + NettyFrame.OFFSET_REQUEST_ID)));
+            } else if (flags == NettyFrame.FLAGS_CANCEL) {
+                out.add(new NettyCancel(in.getLong(start + NettyFrame.OFFSET_REQUEST_ID)));
+            }
+            return;
+        }
+        TransportMetrics.recordFrameLength((int) frameLength);
 
-        Object obj = serializer.deserialize(data, genericClass);
+        // valid type and serializer
+        byte expectType = RpcRequest.class.isAssignableFrom(genericClass) ? NettyFrame.TYPE_REQUEST : NettyFrame.TYPE_RESPONSE;
+        if (type != expectType) {
+            discard(ctx, in, "unexpected frame type " + type);
+            return;
+        }
+        if (serializerId != 0 && serializer.getSerializerId() != 0 && serializerId != serializer.getSerializerId()) {
+            discard(ctx, in, "serializer mismatch, remote serializerId " + serializerId + ", local serializerId " + serializer.getSerializerId());
+            return;
+        }
+
+        // offload, body retained (no copy) until deserialized by worker thread
+        if (offload) {
+            out.add(new NettyFrame(type, in.getLong(start + NettyFrame.OFFSET_REQUEST_ID), genericClass, serializer, in.readRetainedSlice(bodyLength)));
+            return;
+        }
+
+        // deserialize from a slice of the cumulation buffer, no intermediate byte[]
+        Object obj = serializer.deserialize(in.readSlice(bodyLength), genericClass);
         out.add(obj);
     }
+
+    /**
+     * corrupt or incompatible stream, can not resync; drop buffered bytes and close
+     */
+    private void discard(ChannelHandlerContext ctx, ByteBuf in, String reason) {
+        log.error(">>>>>>>>>>> rpc netty decode fail, {}, close channel:{}", reason, ctx.channel());
+        in.skipBytes(in.readableBytes());
+        ctx.close();
+    }
 }
@@ -1,14 +1,18 @@
 package com.xxl.rpc.core.remoting.net.impl.netty.codec;
 
+import com.xxl.rpc.core.remoting.net.params.Beat;
+import com.xxl.rpc.core.remoting.net.params.RpcRequest;
+import com.xxl.rpc.core.remoting.net.params.RpcResponse;
 import com.xxl.rpc.core.serialize.Serializer;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * encoder
+ * encoder, frame header + body
  *
  * @author mzj 2015-10-29 19:43:00
  */
@@ -20,12 +24,57 @@ public class NettyEncoder extends MessageToByteEncoder<Object> {
     private Serializer serializer;
 
 
+    /**
+     * accept rpc message only; others (e.g. frame serialized off the io thread, offloadSerialize) pass through
+     */
+    @Override
+    public boolean acceptOutboundMessage(Object msg) throws Exception {
+        return genericClass.isInstance(msg);
+    }
+
     @Override
     public void encode(ChannelHandlerContext ctx, Object in, ByteBuf out) throws Exception {
-        if (genericClass.isInstance(in)) {
-            byte[] data = serializer.serialize(in);
-            out.writeInt(data.length);
-            out.writeBytes(data);
+        encode(in, serializer, out);
+    }
+
+    /**
+     * serialize frame into a new buffer, off the io thread (offloadSerialize); stateless serializer only
+     */
+    public static ByteBuf encode(ByteBufAllocator allocator, Object in, Serializer serializer) {
+        ByteBuf out = allocator.ioBuffer();
+        try {
+            encode(in, serializer, out);
+            return out;
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        }
+    }
+
+    private static void encode(Object in, Serializer serializer, ByteBuf out) {
+        // header
+        byte type;
+        long requestId;
+        if (in instanceof RpcRequest) {
+            requestId = ((RpcRequest) in).getRequestId();
+            type = Beat.BEAT_ID == requestId ? NettyFrame.TYPE_BEAT : NettyFrame.TYPE_REQUEST;
+        } else {
+            requestId = ((RpcResponse) in).getRequestId();
+            type = NettyFrame.TYPE_RESPONSE;
+        }
+        int headerIndex = out.writerIndex();
+        out.writeShort(NettyFrame.MAGIC);
+        out.writeByte(NettyFrame.VERSION);
+        out.writeByte(type);
+        out.writeByte(NettyFrame.FLAGS_NONE);
+        out.writeByte(serializer.getSerializerId());
+        out.writeLong(requestId);
+        out.writeInt(0);        // body length placeholder
+
+        // body, beat has none; serialize straight into the (pooled) frame buffer, then backfill length
+        if (type != NettyFrame.TYPE_BEAT) {
+            serializer.serialize(in, out);
+            out.setInt(headerIndex + NettyFrame.OFFSET_BODY_LENGTH, out.writerIndex() - headerIndex - NettyFrame.HEADER_LENGTH);
         }
     }
 }
@@ -0,0 +1,92 @@
+package com.xxl.rpc.core.remoting.net.impl.netty.codec;
+
+import com.xxl.rpc.core.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * netty frame header, fixed length, ahead of serialized body
+ *
+ *      layout: magic(2) + version(1) + type(1) + flags(1) + serializerId(1) + requestId(8) + bodyLength(4), big endian;
+ *      beat frame has no body, dropped by decoder without touching serializer; beat with FLAGS_PING / FLAGS_PONG is ping-pong (NettyPing);
+ *      beat with FLAGS_CANCEL cancels a request by id (NettyCancel);
+ *      offloadSerialize: decoder emits the frame with a retained body, deserialized later off the io thread; release once, by "deserialize" or "release";
+ */
+public final class NettyFrame {
+
+    public static final short MAGIC = (short) 0x5852;        // "XR"
+    public static final byte VERSION = 1;
+    public static final int HEADER_LENGTH = 18;
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;     // header + body
+
+    // type
+    public static final byte TYPE_REQUEST = 1;
+    public static final byte TYPE_RESPONSE = 2;
+    public static final byte TYPE_BEAT = 3;
+
+    // flags
+    public static final byte FLAGS_NONE = 0;
+    public static final byte FLAGS_PING = 1;        // beat only, pong expected; requestId carries ping payload
+    public static final byte FLAGS_PONG = 2;        // beat only, payload of ping echoed
+    public static final byte FLAGS_CANCEL = 3;      // beat only, requestId = request cancelled by client
+
+    // field offset
+    static final int OFFSET_MAGIC = 0;
+    static final int OFFSET_VERSION = 2;
+    static final int OFFSET_TYPE = 3;
+    static final int OFFSET_FLAGS = 4;
+    static final int OFFSET_SERIALIZER = 5;
+    static final int OFFSET_REQUEST_ID = 6;
+    static final int OFFSET_BODY_LENGTH = 14;
+
+
+    // ---------------------- framed, body not deserialized ----------------------
+
+    private final byte type;
+    private final long requestId;
+    private final Class<?> bodyClass;
+    private final Serializer serializer;
+    private ByteBuf body;
+
+    NettyFrame(byte type, long requestId, Class<?> bodyClass, Serializer serializer, ByteBuf body) {
+        this.type = type;
+        this.requestId = requestId;
+        this.bodyClass = bodyClass;
+        this.serializer = serializer;
+        this.body = body;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public Serializer getSerializer() {
+        return serializer;
+    }
+
+    public int getBodyLength() {
+        return body != null ? body.readableBytes() : 0;
+    }
+
+    /**
+     * deserialize body and release it
+     */
+    public Object deserialize() {
+        try {
+            return serializer.deserialize(body, bodyClass);
+        } finally {
+            release();
+        }
+    }
+
+    public void release() {
+        if (body != null) {
+            body.release();
+            body = null;
+        }
+    }
+
+}
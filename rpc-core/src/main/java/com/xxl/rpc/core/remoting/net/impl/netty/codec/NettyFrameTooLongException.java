@@ -0,0 +1,39 @@
+package com.xxl.rpc.core.remoting.net.impl.netty.codec;
+
+import io.netty.handler.codec.TooLongFrameException;
+
+/**
+ * frame over max frame length, rejected by header only; body skipped by decoder, stream still in sync (channel kept)
+ * unless serializer is connection-scoped (closeChannel)
+ */
+public class NettyFrameTooLongException extends TooLongFrameException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte type;
+    private final long requestId;
+    private final boolean closeChannel;
+
+    public NettyFrameTooLongException(byte type, long requestId, boolean closeChannel, String message) {
+        super(message);
+        this.type = type;
+        this.requestId = requestId;
+        this.closeChannel = closeChannel;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * per-connection serializer state out of sync with the sender, channel must be closed after the request failed
+     */
+    public boolean isCloseChannel() {
+        return closeChannel;
+    }
+
+}
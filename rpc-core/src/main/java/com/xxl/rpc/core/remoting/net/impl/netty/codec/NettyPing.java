@@ -0,0 +1,46 @@
+package com.xxl.rpc.core.remoting.net.impl.netty.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * ping-pong, beat frame (no body) with FLAGS_PING / FLAGS_PONG, handled on the event loop
+ *
+ *      ping: sent by client, payload = send time (System.nanoTime of client);
+ *      pong: sent by server at once, payload of ping echoed; client gets rtt = now - payload;
+ *      peer of old version drops ping as plain beat, never pongs;
+ */
+public final class NettyPing {
+
+    private final boolean pong;
+    private final long payload;
+
+    public NettyPing(boolean pong, long payload) {
+        this.pong = pong;
+        this.payload = payload;
+    }
+
+    public boolean isPong() {
+        return pong;
+    }
+
+    public long getPayload() {
+        return payload;
+    }
+
+    /**
+     * encode frame, written as is (passed through by NettyEncoder)
+     */
+    public static ByteBuf encode(ByteBufAllocator allocator, boolean pong, long payload) {
+        ByteBuf out = allocator.ioBuffer(NettyFrame.HEADER_LENGTH);
+        out.writeShort(NettyFrame.MAGIC);
+        out.writeByte(NettyFrame.VERSION);
+        out.writeByte(NettyFrame.TYPE_BEAT);
+        out.writeByte(pong ? NettyFrame.FLAGS_PONG : NettyFrame.FLAGS_PING);
+        out.writeByte(0);
+        out.writeLong(payload);
+        out.writeInt(0);
+        return out;
+    }
+
+}
@@ -1,24 +1,28 @@
 package com.xxl.rpc.core.remoting.net.impl.netty.server;
 
 import com.xxl.rpc.core.remoting.net.Server;
+import com.xxl.rpc.core.remoting.net.common.NettyServerOptions;
+import com.xxl.rpc.core.remoting.net.common.TransportMode;
 import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyDecoder;
 import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyEncoder;
 import com.xxl.rpc.core.remoting.net.params.Beat;
 import com.xxl.rpc.core.remoting.net.params.RpcRequest;
 import com.xxl.rpc.core.remoting.net.params.RpcResponse;
 import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
+import com.xxl.rpc.core.serialize.Serializer;
 import com.xxl.rpc.core.util.ThreadPoolUtil;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.timeout.IdleStateHandler;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.File;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -43,33 +47,58 @@ public class NettyServer extends Server {
                 final ThreadPoolExecutor serverHandlerPool = ThreadPoolUtil.makeServerThreadPool(
                         NettyServer.class.getSimpleName(),
                         xxlRpcProviderFactory.getCorePoolSize(),
-                        xxlRpcProviderFactory.getMaxPoolSize()
+                        xxlRpcProviderFactory.getMaxPoolSize(),
+                        xxlRpcProviderFactory.getQueueType(),
+                        xxlRpcProviderFactory.getQueueCapacity()
                 );
-                EventLoopGroup bossGroup = new NioEventLoopGroup();
-                EventLoopGroup workerGroup = new NioEventLoopGroup();
+                TransportMode transportMode = xxlRpcProviderFactory.getTransportMode().resolve();
+                final boolean offloadSerialize = xxlRpcProviderFactory.isOffloadSerialize();
+                EventLoopGroup bossGroup = transportMode.newEventLoopGroup(xxlRpcProviderFactory.getBossThreads());
+                EventLoopGroup workerGroup = transportMode.newEventLoopGroup(xxlRpcProviderFactory.getWorkerThreads());
+
+                final String unixSocketPath = xxlRpcProviderFactory.getUnixSocketPath();
 
                 try {
+                    // pipeline, shared by tcp and unix domain socket
+                    ChannelInitializer<Channel> childHandler = new ChannelInitializer<Channel>() {
+                        @Override
+                        public void initChannel(Channel channel) throws Exception {
+                            Serializer connectionSerializer = xxlRpcProviderFactory.getSerializerInstance().forConnection();      // shared by decoder and encoder of this channel
+                            channel.pipeline()
+                                    .addLast(new IdleStateHandler(0, 0, Beat.BEAT_INTERVAL * 3, TimeUnit.SECONDS))     // beat 3N, close if idle
+                                    .addLast(new NettyDecoder(RpcRequest.class, connectionSerializer, offloadSerialize, xxlRpcProviderFactory.getMaxFrameLength()))
+                                    .addLast(new NettyEncoder(RpcResponse.class, connectionSerializer))
+                                    .addLast(new NettyServerHandler(xxlRpcProviderFactory, serverHandlerPool));
+                        }
+                    };
+
                     // start server
                     ServerBootstrap bootstrap = new ServerBootstrap();
                     bootstrap.group(bossGroup, workerGroup)
-                            .channel(NioServerSocketChannel.class)
-                            .childHandler(new ChannelInitializer<SocketChannel>() {
-                                @Override
-                                public void initChannel(SocketChannel channel) throws Exception {
-                                    channel.pipeline()
-                                            .addLast(new IdleStateHandler(0, 0, Beat.BEAT_INTERVAL * 3, TimeUnit.SECONDS))     // beat 3N, close if idle
-                                            .addLast(new NettyDecoder(RpcRequest.class, xxlRpcProviderFactory.getSerializerInstance()))
-                                            .addLast(new NettyEncoder(RpcResponse.class, xxlRpcProviderFactory.getSerializerInstance()))
-                                            .addLast(new NettyServerHandler(xxlRpcProviderFactory, serverHandlerPool));
-                                }
-                            })
+                            .channel(transportMode.serverSocketChannelClass())
+                            .childHandler(childHandler)
                             .childOption(ChannelOption.TCP_NODELAY, true)
                             .childOption(ChannelOption.SO_KEEPALIVE, true);
+                    NettyServerOptions.apply(bootstrap, xxlRpcProviderFactory, transportMode);
 
                     // bind
                     ChannelFuture future = bootstrap.bind(xxlRpcProviderFactory.getPort()).sync();
 
-                    log.info(">>>>>>>>>>> rpc remoting server start success, nettype = {}, port = {}", NettyServer.class.getName(), xxlRpcProviderFactory.getPort());
+                    // bind unix domain socket, co-located consumers (epoll event loop, checked by provider)
+                    if (unixSocketPath != null) {
+                        File socketFile = new File(unixSocketPath);
+                        if (socketFile.exists() && socketFile.delete()) {
+                            log.info(">>>>>>>>>>> rpc remoting server delete stale unix domain socket file: {}", unixSocketPath);
+                        }
+                        ServerBootstrap domainBootstrap = new ServerBootstrap();
+                        domainBootstrap.group(bossGroup, workerGroup)
+                                .channel(EpollServerDomainSocketChannel.class)
+                                .childHandler(childHandler);
+                        NettyServerOptions.applyDomainSocket(domainBootstrap, xxlRpcProviderFactory);
+                        domainBootstrap.bind(new DomainSocketAddress(unixSocketPath)).sync();
+                    }
+
+                    log.info(">>>>>>>>>>> rpc remoting server start success, nettype = {}, transport = {}, port = {}, unixSocketPath = {}", NettyServer.class.getName(), transportMode, xxlRpcProviderFactory.getPort(), unixSocketPath);
                     onStarted();
 
                     // wait util stop
@@ -94,6 +123,9 @@ public class NettyServer extends Server {
                     } catch (Exception e) {
                         log.error(e.getMessage(), e);
                     }
+                    if (unixSocketPath != null) {
+                        new File(unixSocketPath).delete();
+                    }
 
                 }
             }
@@ -1,17 +1,28 @@
 package com.xxl.rpc.core.remoting.net.impl.netty.server;
 
-import com.xxl.rpc.core.remoting.net.params.Beat;
+import com.xxl.rpc.core.remoting.net.common.TransportMetrics;
+import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyCancel;
+import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyEncoder;
+import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyFrame;
+import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyFrameTooLongException;
+import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyPing;
 import com.xxl.rpc.core.remoting.net.params.RpcRequest;
 import com.xxl.rpc.core.remoting.net.params.RpcResponse;
 import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
 import com.xxl.rpc.core.util.ThrowableUtil;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
@@ -19,7 +30,7 @@ import java.util.concurrent.ThreadPoolExecutor;
  *
  * @author mzj 2015-10-29 20:07:37
  */
-public class NettyServerHandler extends SimpleChannelInboundHandler<RpcRequest> {
+public class NettyServerHandler extends SimpleChannelInboundHandler<Object> {
     private static final Logger logger = LoggerFactory.getLogger(NettyServerHandler.class);
 
     private RpcProviderFactory xxlRpcProviderFactory;
@@ -32,38 +43,176 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<RpcRequest>
 
 
     @Override
-    public void channelRead0(final ChannelHandlerContext ctx, final RpcRequest xxlRpcRequest) throws Exception {
+    public void channelRead0(final ChannelHandlerContext ctx, final Object msg) throws Exception {
 
-        // filter beat
-        if (Beat.BEAT_ID.equalsIgnoreCase(xxlRpcRequest.getRequestId())){
-            logger.debug(">>>>>>>>>>> rpc provider netty server read beat-ping.");
+        // ping, pong at once on event loop
+        if (msg instanceof NettyPing) {
+            ctx.writeAndFlush(NettyPing.encode(ctx.alloc(), true, ((NettyPing) msg).getPayload()));
             return;
         }
 
-        // do invoke
+        // cancel, skip if still queued
+        if (msg instanceof NettyCancel) {
+            queuedRequests.replace(((NettyCancel) msg).getRequestId(), Boolean.TRUE, Boolean.FALSE);
+            return;
+        }
+
+        // do invoke (beat filtered by decoder, by frame type)
+        final long queuedRequestId = msg instanceof NettyFrame ? ((NettyFrame) msg).getRequestId() : ((RpcRequest) msg).getRequestId();
+        queuedRequests.put(queuedRequestId, Boolean.TRUE);
         try {
             serverHandlerPool.execute(new Runnable() {
                 @Override
                 public void run() {
+                    // cancelled while queued, no response (future removed by client)
+                    if (Boolean.FALSE.equals(queuedRequests.remove(queuedRequestId))) {
+                        TransportMetrics.SERVER_CANCELLED.increment();
+                        if (msg instanceof NettyFrame) {
+                            ((NettyFrame) msg).release();
+                        }
+                        return;
+                    }
+
+                    // offloadSerialize, deserialize on business thread
+                    RpcRequest xxlRpcRequest;
+                    if (msg instanceof NettyFrame) {
+                        try {
+                            xxlRpcRequest = (RpcRequest) ((NettyFrame) msg).deserialize();
+                        } catch (Exception e) {
+                            logger.error(">>>>>>>>>>> rpc provider netty server deserialize request fail.", e);
+                            writeError(ctx, ((NettyFrame) msg).getRequestId(), e);
+                            return;
+                        }
+                    } else {
+                        xxlRpcRequest = (RpcRequest) msg;
+                    }
+
                     // invoke + response
                     RpcResponse xxlRpcResponse = xxlRpcProviderFactory.invokeService(xxlRpcRequest);
 
-                    ctx.writeAndFlush(xxlRpcResponse);
+                    writeResponse(ctx, msg, xxlRpcResponse);
                 }
             });
         } catch (Exception e) {
-            // catch error
-            RpcResponse xxlRpcResponse = new RpcResponse();
-            xxlRpcResponse.setRequestId(xxlRpcRequest.getRequestId());
-            xxlRpcResponse.setErrorMsg(ThrowableUtil.toString(e));
+            queuedRequests.remove(queuedRequestId);
+
+            // catch error, request id from frame header if not deserialized
+            long requestId;
+            if (msg instanceof NettyFrame) {
+                ((NettyFrame) msg).release();
+                requestId = ((NettyFrame) msg).getRequestId();
+            } else {
+                requestId = ((RpcRequest) msg).getRequestId();
+            }
+            writeError(ctx, requestId, e);
+        }
+
+    }
+
+    // requests queued to business pool, not started: TRUE = live, FALSE = cancelled by client (NettyCancel)
+    private final ConcurrentHashMap<Long, Boolean> queuedRequests = new ConcurrentHashMap<Long, Boolean>();
+
+    /**
+     * offloadSerialize, serialize on business thread too; otherwise by encoder on io thread
+     */
+    private void writeResponse(ChannelHandlerContext ctx, Object msg, RpcResponse xxlRpcResponse) {
+        if (msg instanceof NettyFrame) {
+            ByteBuf frame;
+            try {
+                frame = NettyEncoder.encode(ctx.alloc(), xxlRpcResponse, ((NettyFrame) msg).getSerializer());
+            } catch (Exception e) {
+                logger.error(">>>>>>>>>>> rpc provider netty server serialize response fail.", e);
+                writeError(ctx, xxlRpcResponse.getRequestId(), e);
+                return;
+            }
+            write(ctx, frame);
+            return;
+        }
+        write(ctx, xxlRpcResponse);
+    }
+
+    private void writeError(ChannelHandlerContext ctx, long requestId, Exception e) {
+        RpcResponse xxlRpcResponse = new RpcResponse();
+        xxlRpcResponse.setRequestId(requestId);
+        xxlRpcResponse.setErrorMsg(ThrowableUtil.toString(e));
+
+        write(ctx, xxlRpcResponse);
+    }
+
+
+    // ---------------------- flush coalescing ----------------------
 
-            ctx.writeAndFlush(xxlRpcResponse);
+    private static final int FLUSH_BATCH = 64;      // flush within a drain every N responses, bound latency of the first ones
+
+    private final Queue<Object> responseQueue = new ConcurrentLinkedQueue<Object>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    /**
+     * business threads only enqueue; at most one drain task queued per channel, it writes all queued responses and
+     * flushes once (one syscall), or every FLUSH_BATCH responses / when outbound buffer over high water mark
+     */
+    private void write(final ChannelHandlerContext ctx, Object response) {
+        responseQueue.offer(response);
+        if (drainScheduled.compareAndSet(false, true)) {
+            ctx.executor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    drain(ctx);
+                }
+            });
+        }
+    }
+
+    private void drain(ChannelHandlerContext ctx) {
+        drainScheduled.set(false);        // reset before drain, later writes schedule next drain
+
+        int batch = 0;
+        Object response;
+        while ((response = responseQueue.poll()) != null) {
+            ctx.write(response);
+            TransportMetrics.SERVER_RESPONSES.increment();
+            if (++batch >= FLUSH_BATCH || !ctx.channel().isWritable()) {
+                ctx.flush();
+                TransportMetrics.SERVER_FLUSHES.increment();
+                batch = 0;
+            }
+        }
+        if (batch > 0) {
+            ctx.flush();
+            TransportMetrics.SERVER_FLUSHES.increment();
         }
+    }
 
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // responses not written, release frames serialized off the io thread
+        Object response;
+        while ((response = responseQueue.poll()) != null) {
+            ReferenceCountUtil.release(response);
+        }
+        super.channelInactive(ctx);
     }
 
     @Override
-    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+    public void exceptionCaught(final ChannelHandlerContext ctx, Throwable cause) {
+        // request over max frame length, body skipped by decoder; fail fast with error response, channel kept unless serializer out of sync
+        if (cause instanceof NettyFrameTooLongException) {
+            NettyFrameTooLongException tooLongException = (NettyFrameTooLongException) cause;
+            if (tooLongException.getType() == NettyFrame.TYPE_REQUEST) {
+                writeError(ctx, tooLongException.getRequestId(), tooLongException);
+            }
+            if (tooLongException.isCloseChannel()) {
+                // queued after drain of the error response, closed once it is written
+                ctx.executor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        ctx.close();
+                    }
+                });
+            }
+            return;
+        }
+
     	logger.error(">>>>>>>>>>> rpc provider netty server caught exception", cause);
         ctx.close();
     }
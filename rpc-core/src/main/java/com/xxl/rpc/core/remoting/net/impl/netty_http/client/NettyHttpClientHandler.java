@@ -5,7 +5,6 @@ import com.xxl.rpc.core.remoting.net.params.Beat;
 import com.xxl.rpc.core.remoting.net.params.RpcResponse;
 import com.xxl.rpc.core.serialize.Serializer;
 import com.xxl.rpc.core.util.RpcException;
-import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.FullHttpResponse;
@@ -36,22 +35,31 @@ public class NettyHttpClientHandler extends SimpleChannelInboundHandler<FullHttp
             throw new RpcException("rpc response status invalid.");
         }
 
-        // response parse
-        byte[] responseBytes = ByteBufUtil.getBytes(msg.content());
-
         // valid length
-        if (responseBytes.length == 0) {
+        if (!msg.content().isReadable()) {
             throw new RpcException("rpc response data empty.");
         }
 
-        // response deserialize
-        RpcResponse xxlRpcResponse = (RpcResponse) serializer.deserialize(responseBytes, RpcResponse.class);
+        // response deserialize, read from aggregated content directly
+        RpcResponse xxlRpcResponse = (RpcResponse) serializer.deserialize(msg.content(), RpcResponse.class);
 
         // notify response
         xxlRpcInvokerFactory.notifyInvokerFuture(xxlRpcResponse.getRequestId(), xxlRpcResponse);
 
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        nettyHttpConnectClient.onWritabilityChanged();
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        nettyHttpConnectClient.onWritabilityChanged();
+        super.channelInactive(ctx);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         //super.exceptionCaught(ctx, cause);
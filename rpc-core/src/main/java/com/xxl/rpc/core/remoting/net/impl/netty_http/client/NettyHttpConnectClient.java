@@ -1,25 +1,30 @@
 package com.xxl.rpc.core.remoting.net.impl.netty_http.client;
 
 import com.xxl.rpc.core.remoting.invoker.RpcInvokerFactory;
+import com.xxl.rpc.core.remoting.invoker.reference.RpcReferenceBean;
+import com.xxl.rpc.core.remoting.net.common.ChannelWriter;
 import com.xxl.rpc.core.remoting.net.common.ConnectClient;
+import com.xxl.rpc.core.remoting.net.common.NettyClientOptions;
+import com.xxl.rpc.core.remoting.net.common.TransportMode;
 import com.xxl.rpc.core.remoting.net.params.BaseCallback;
 import com.xxl.rpc.core.remoting.net.params.Beat;
 import com.xxl.rpc.core.remoting.net.params.RpcRequest;
 import com.xxl.rpc.core.serialize.Serializer;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.timeout.IdleStateHandler;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.URI;
 import java.net.URL;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -29,16 +34,20 @@ import java.util.concurrent.TimeUnit;
  */
 @Slf4j
 public class NettyHttpConnectClient extends ConnectClient {
-    private static NioEventLoopGroup nioEventLoopGroup;
+    private static final Map<TransportMode, EventLoopGroup> eventLoopGroupMap = new EnumMap<>(TransportMode.class);      // shared by clients of same mode
 
     private Channel channel;
+    private ChannelWriter channelWriter;
 
     private Serializer serializer;
     private String address;
     private String host;
 
     @Override
-    public void init(String address, final Serializer serializer, final RpcInvokerFactory xxlRpcInvokerFactory) throws Exception {
+    public void init(String address, final RpcReferenceBean xxlRpcReferenceBean) throws Exception {
+        final Serializer serializer = xxlRpcReferenceBean.getSerializerInstance();
+        final RpcInvokerFactory xxlRpcInvokerFactory = xxlRpcReferenceBean.getInvokerFactory();
+        TransportMode transportMode = xxlRpcReferenceBean.getTransportMode().resolve();
 
         // address
         if (!address.toLowerCase().startsWith("http")) {
@@ -50,26 +59,11 @@ public class NettyHttpConnectClient extends ConnectClient {
         this.host = url.getHost();
         int port = url.getPort()>-1?url.getPort():80;
 
-        // group
-        if (nioEventLoopGroup == null) {
-            synchronized (NettyHttpConnectClient.class) {
-                if (nioEventLoopGroup == null) {
-                    nioEventLoopGroup = new NioEventLoopGroup();
-                    xxlRpcInvokerFactory.addStopCallBack(new BaseCallback() {
-                        @Override
-                        public void run() throws Exception {
-                            nioEventLoopGroup.shutdownGracefully();
-                        }
-                    });
-                }
-            }
-        }
-
         // init
         final NettyHttpConnectClient thisClient = this;
         Bootstrap bootstrap = new Bootstrap();
-        bootstrap.group(nioEventLoopGroup)
-                .channel(NioSocketChannel.class)
+        bootstrap.group(getEventLoopGroup(transportMode, xxlRpcInvokerFactory))
+                .channel(transportMode.socketChannelClass())
                 .handler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     public void initChannel(SocketChannel channel) throws Exception {
@@ -81,8 +75,10 @@ public class NettyHttpConnectClient extends ConnectClient {
                     }
                 })
                 .option(ChannelOption.SO_KEEPALIVE, true)
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 10000);
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, xxlRpcReferenceBean.getConnectTimeout());
+        NettyClientOptions.apply(bootstrap, xxlRpcReferenceBean, transportMode);
         this.channel = bootstrap.connect(host, port).sync().channel();
+        this.channelWriter = new ChannelWriter(this.channel, xxlRpcInvokerFactory);
 
         this.serializer = serializer;
 
@@ -95,6 +91,27 @@ public class NettyHttpConnectClient extends ConnectClient {
         log.debug(">>>>>>>>>>> rpc netty client proxy, connect to server success at host:{}, port:{}", host, port);
     }
 
+    private static EventLoopGroup getEventLoopGroup(final TransportMode transportMode, RpcInvokerFactory xxlRpcInvokerFactory) {
+        synchronized (NettyHttpConnectClient.class) {
+            EventLoopGroup eventLoopGroup = eventLoopGroupMap.get(transportMode);
+            if (eventLoopGroup == null) {
+                final EventLoopGroup newEventLoopGroup = transportMode.newEventLoopGroup(0);
+                xxlRpcInvokerFactory.addStopCallBack(new BaseCallback() {
+                    @Override
+                    public void run() throws Exception {
+                        synchronized (NettyHttpConnectClient.class) {
+                            eventLoopGroupMap.remove(transportMode, newEventLoopGroup);
+                        }
+                        newEventLoopGroup.shutdownGracefully();
+                    }
+                });
+                eventLoopGroupMap.put(transportMode, newEventLoopGroup);
+                eventLoopGroup = newEventLoopGroup;
+            }
+            return eventLoopGroup;
+        }
+    }
+
     @Override
     public boolean isValidate() {
         if (this.channel != null) {
@@ -104,6 +121,25 @@ public class NettyHttpConnectClient extends ConnectClient {
     }
 
 
+    @Override
+    public boolean isWritable() {
+        return this.channel != null && this.channel.isWritable();
+    }
+
+    @Override
+    public boolean awaitWritable(long timeoutMillis) throws InterruptedException {
+        return this.channelWriter != null && this.channelWriter.awaitWritable(timeoutMillis);
+    }
+
+    /**
+     * writability changed or channel inactive, wake up blocked senders
+     */
+    void onWritabilityChanged() {
+        if (this.channelWriter != null) {
+            this.channelWriter.onWritabilityChanged();
+        }
+    }
+
     @Override
     public void close() {
         if (this.channel!=null && this.channel.isActive()) {
@@ -115,14 +151,21 @@ public class NettyHttpConnectClient extends ConnectClient {
 
     @Override
     public void send(RpcRequest xxlRpcRequest) throws Exception {
-        byte[] requestBytes = serializer.serialize(xxlRpcRequest);
+        // serialize into a pooled buffer, released by the http encoder once written
+        ByteBuf requestBuf = this.channel.alloc().buffer();
+        try {
+            serializer.serialize(xxlRpcRequest, requestBuf);
+        } catch (Exception e) {
+            requestBuf.release();
+            throw e;
+        }
 
-        DefaultFullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, new URI(address).getRawPath(), Unpooled.wrappedBuffer(requestBytes));
+        DefaultFullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, new URI(address).getRawPath(), requestBuf);
         request.headers().set(HttpHeaderNames.HOST, host);
         request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
         request.headers().set(HttpHeaderNames.CONTENT_LENGTH, request.content().readableBytes());
 
-        this.channel.writeAndFlush(request).sync();
+        this.channelWriter.write(request, xxlRpcRequest.getRequestId());
     }
 
 }
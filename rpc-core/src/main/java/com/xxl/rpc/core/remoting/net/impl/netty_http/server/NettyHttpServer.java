@@ -1,6 +1,8 @@
 package com.xxl.rpc.core.remoting.net.impl.netty_http.server;
 
 import com.xxl.rpc.core.remoting.net.Server;
+import com.xxl.rpc.core.remoting.net.common.NettyServerOptions;
+import com.xxl.rpc.core.remoting.net.common.TransportMode;
 import com.xxl.rpc.core.remoting.net.params.Beat;
 import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
 import com.xxl.rpc.core.util.ThreadPoolUtil;
@@ -9,9 +11,7 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.timeout.IdleStateHandler;
@@ -42,15 +42,19 @@ public class NettyHttpServer extends Server  {
                 final ThreadPoolExecutor serverHandlerPool = ThreadPoolUtil.makeServerThreadPool(
                         NettyHttpServer.class.getSimpleName(),
                         xxlRpcProviderFactory.getCorePoolSize(),
-                        xxlRpcProviderFactory.getMaxPoolSize());
-                EventLoopGroup bossGroup = new NioEventLoopGroup();
-                EventLoopGroup workerGroup = new NioEventLoopGroup();
+                        xxlRpcProviderFactory.getMaxPoolSize(),
+                        xxlRpcProviderFactory.getQueueType(),
+                        xxlRpcProviderFactory.getQueueCapacity()
+                );
+                TransportMode transportMode = xxlRpcProviderFactory.getTransportMode().resolve();
+                EventLoopGroup bossGroup = transportMode.newEventLoopGroup(xxlRpcProviderFactory.getBossThreads());
+                EventLoopGroup workerGroup = transportMode.newEventLoopGroup(xxlRpcProviderFactory.getWorkerThreads());
 
                 try {
                     // start server
                     ServerBootstrap bootstrap = new ServerBootstrap();
                     bootstrap.group(bossGroup, workerGroup)
-                            .channel(NioServerSocketChannel.class)
+                            .channel(transportMode.serverSocketChannelClass())
                             .childHandler(new ChannelInitializer<SocketChannel>() {
                                 @Override
                                 public void initChannel(SocketChannel channel) throws Exception {
@@ -62,11 +66,12 @@ public class NettyHttpServer extends Server  {
                                 }
                             })
                             .childOption(ChannelOption.SO_KEEPALIVE, true);
+                    NettyServerOptions.apply(bootstrap, xxlRpcProviderFactory, transportMode);
 
                     // bind
                     ChannelFuture future = bootstrap.bind(xxlRpcProviderFactory.getPort()).sync();
 
-                    log.info(">>>>>>>>>>> rpc remoting server start success, nettype = {}, port = {}", NettyHttpServer.class.getName(), xxlRpcProviderFactory.getPort());
+                    log.info(">>>>>>>>>>> rpc remoting server start success, nettype = {}, transport = {}, port = {}", NettyHttpServer.class.getName(), transportMode, xxlRpcProviderFactory.getPort());
                     onStarted();
 
                     // wait util stop
@@ -6,7 +6,7 @@ import com.xxl.rpc.core.remoting.net.params.RpcResponse;
 import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
 import com.xxl.rpc.core.util.RpcException;
 import com.xxl.rpc.core.util.ThrowableUtil;
-import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
@@ -34,22 +34,27 @@ public class NettyHttpServerHandler extends SimpleChannelInboundHandler<FullHttp
     @Override
     protected void channelRead0(final ChannelHandlerContext ctx, FullHttpRequest msg) throws Exception {
 
-        // request parse
-        final byte[] requestBytes = ByteBufUtil.getBytes(msg.content());    // byteBuf.toString(io.netty.util.CharsetUtil.UTF_8);
+        // request parse, retain content until deserialized in business thread
+        final ByteBuf requestBuf = msg.content().retain();
         final String uri = msg.uri();
         final boolean keepAlive = HttpUtil.isKeepAlive(msg);
 
         // do invoke
-        serverHandlerPool.execute(new Runnable() {
-            @Override
-            public void run() {
-                process(ctx, uri, requestBytes, keepAlive);
-            }
-        });
+        try {
+            serverHandlerPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    process(ctx, uri, requestBuf, keepAlive);
+                }
+            });
+        } catch (Exception e) {
+            requestBuf.release();
+            throw e;
+        }
     }
 
-    private void process(ChannelHandlerContext ctx, String uri, byte[] requestBytes, boolean keepAlive){
-        String requestId = null;
+    private void process(ChannelHandlerContext ctx, String uri, ByteBuf requestBuf, boolean keepAlive){
+        long requestId = 0;
         try {
             if ("/services".equals(uri)) {	// services mapping
 
@@ -64,21 +69,21 @@ public class NettyHttpServerHandler extends SimpleChannelInboundHandler<FullHttp
                 byte[] responseBytes = sb.toString().getBytes("UTF-8");
 
                 // response-write
-                writeResponse(ctx, keepAlive, responseBytes);
+                writeResponse(ctx, keepAlive, Unpooled.wrappedBuffer(responseBytes));
 
             } else {
 
                 // valid
-                if (requestBytes.length == 0) {
+                if (!requestBuf.isReadable()) {
                     throw new RpcException("rpc request data empty.");
                 }
 
                 // request deserialize
-                RpcRequest xxlRpcRequest = (RpcRequest) xxlRpcProviderFactory.getSerializerInstance().deserialize(requestBytes, RpcRequest.class);
+                RpcRequest xxlRpcRequest = (RpcRequest) xxlRpcProviderFactory.getSerializerInstance().deserialize(requestBuf, RpcRequest.class);
                 requestId = xxlRpcRequest.getRequestId();
 
                 // filter beat
-                if (Beat.BEAT_ID.equalsIgnoreCase(xxlRpcRequest.getRequestId())){
+                if (Beat.BEAT_ID == xxlRpcRequest.getRequestId()){
                     log.debug(">>>>>>>>>>> rpc provider netty_http server read beat-ping.");
                     return;
                 }
@@ -86,11 +91,8 @@ public class NettyHttpServerHandler extends SimpleChannelInboundHandler<FullHttp
                 // invoke + response
                 RpcResponse xxlRpcResponse = xxlRpcProviderFactory.invokeService(xxlRpcRequest);
 
-                // response serialize
-                byte[] responseBytes = xxlRpcProviderFactory.getSerializerInstance().serialize(xxlRpcResponse);
-
                 // response-write
-                writeResponse(ctx, keepAlive, responseBytes);
+                writeResponse(ctx, keepAlive, serializeResponse(ctx, xxlRpcResponse));
             }
         } catch (Exception e) {
             log.error(e.getMessage(), e);
@@ -100,20 +102,33 @@ public class NettyHttpServerHandler extends SimpleChannelInboundHandler<FullHttp
             xxlRpcResponse.setRequestId(requestId);
             xxlRpcResponse.setErrorMsg(ThrowableUtil.toString(e));
 
-            // response serialize
-            byte[] responseBytes = xxlRpcProviderFactory.getSerializerInstance().serialize(xxlRpcResponse);
-
             // response-write
-            writeResponse(ctx, keepAlive, responseBytes);
+            writeResponse(ctx, keepAlive, serializeResponse(ctx, xxlRpcResponse));
+        } finally {
+            requestBuf.release();
         }
 
     }
 
+    /**
+     * serialize response into a pooled buffer
+     */
+    private ByteBuf serializeResponse(ChannelHandlerContext ctx, RpcResponse xxlRpcResponse) {
+        ByteBuf responseBuf = ctx.alloc().buffer();
+        try {
+            xxlRpcProviderFactory.getSerializerInstance().serialize(xxlRpcResponse, responseBuf);
+            return responseBuf;
+        } catch (RuntimeException e) {
+            responseBuf.release();
+            throw e;
+        }
+    }
+
     /**
      * write response
      */
-    private void writeResponse(ChannelHandlerContext ctx, boolean keepAlive, byte[] responseBytes){
-        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(responseBytes));
+    private void writeResponse(ChannelHandlerContext ctx, boolean keepAlive, ByteBuf responseBuf){
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, responseBuf);
         response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/html;charset=UTF-8");       // HttpHeaderValues.TEXT_PLAIN.toString()
         response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
         if (keepAlive) {
@@ -0,0 +1,24 @@
+package com.xxl.rpc.core.remoting.net.impl.netty_http2.client;
+
+import com.xxl.rpc.core.remoting.net.Client;
+import com.xxl.rpc.core.remoting.net.common.ConnectClient;
+import com.xxl.rpc.core.remoting.net.params.RpcRequest;
+
+/**
+ * netty_http2 client, concurrent requests multiplexed as streams of one connection
+ */
+public class NettyHttp2Client extends Client {
+
+    private Class<? extends ConnectClient> connectClientImpl = NettyHttp2ConnectClient.class;
+
+    @Override
+    public void asyncSend(String address, RpcRequest xxlRpcRequest) throws Exception {
+        ConnectClient.asyncSend(xxlRpcRequest, address, connectClientImpl, xxlRpcReferenceBean);
+    }
+
+    @Override
+    public void connect(String address) throws Exception {
+        ConnectClient.connect(address, connectClientImpl, xxlRpcReferenceBean);
+    }
+
+}
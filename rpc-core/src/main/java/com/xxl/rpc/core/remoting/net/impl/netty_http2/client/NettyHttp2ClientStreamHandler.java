@@ -0,0 +1,116 @@
+package com.xxl.rpc.core.remoting.net.impl.netty_http2.client;
+
+import com.xxl.rpc.core.remoting.invoker.RpcInvokerFactory;
+import com.xxl.rpc.core.remoting.net.impl.netty_http2.server.NettyHttp2ServerStreamHandler;
+import com.xxl.rpc.core.remoting.net.params.RpcResponse;
+import com.xxl.rpc.core.serialize.Serializer;
+import com.xxl.rpc.core.util.RpcException;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http2.Http2DataFrame;
+import io.netty.handler.codec.http2.Http2HeadersFrame;
+import io.netty.handler.codec.http2.Http2ResetFrame;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * netty_http2 stream handler, one instance per request stream
+ *
+ *      response: HEADERS(:status 200) + DATA, end of stream; stream reset or closed before that fails the request;
+ */
+@Slf4j
+public class NettyHttp2ClientStreamHandler extends ChannelInboundHandlerAdapter {
+
+    private final RpcInvokerFactory xxlRpcInvokerFactory;
+    private final Serializer serializer;
+    private final NettyHttp2ConnectClient nettyHttp2ConnectClient;
+    private final long requestId;
+
+    private CompositeByteBuf responseBuf;       // event loop only
+    private boolean done = false;
+
+    public NettyHttp2ClientStreamHandler(RpcInvokerFactory xxlRpcInvokerFactory, Serializer serializer, NettyHttp2ConnectClient nettyHttp2ConnectClient, long requestId) {
+        this.xxlRpcInvokerFactory = xxlRpcInvokerFactory;
+        this.serializer = serializer;
+        this.nettyHttp2ConnectClient = nettyHttp2ConnectClient;
+        this.requestId = requestId;
+    }
+
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        try {
+            boolean endStream;
+            if (msg instanceof Http2HeadersFrame) {
+                Http2HeadersFrame headersFrame = (Http2HeadersFrame) msg;
+                CharSequence status = headersFrame.headers().status();
+                if (status != null && !HttpResponseStatus.OK.codeAsText().contentEquals(status)) {
+                    throw new RpcException("rpc response status invalid, status:" + status);
+                }
+                endStream = headersFrame.isEndStream();
+            } else if (msg instanceof Http2DataFrame) {
+                Http2DataFrame dataFrame = (Http2DataFrame) msg;
+                if (responseBuf == null) {
+                    responseBuf = ctx.alloc().compositeBuffer();
+                }
+                responseBuf.addComponent(true, dataFrame.content().retain());
+                if (responseBuf.readableBytes() > NettyHttp2ServerStreamHandler.MAX_CONTENT_LENGTH) {
+                    throw new RpcException("rpc response data too large, length:" + responseBuf.readableBytes());
+                }
+                endStream = dataFrame.isEndStream();
+            } else if (msg instanceof Http2ResetFrame) {
+                throw new RpcException("rpc stream reset by server, errorCode:" + ((Http2ResetFrame) msg).errorCode());
+            } else {
+                return;
+            }
+            if (!endStream) {
+                return;
+            }
+
+            // valid length
+            if (responseBuf == null || !responseBuf.isReadable()) {
+                throw new RpcException("rpc response data empty.");
+            }
+
+            // response deserialize
+            RpcResponse xxlRpcResponse = (RpcResponse) serializer.deserialize(responseBuf, RpcResponse.class);
+            release();
+
+            // notify response
+            done = true;
+            xxlRpcInvokerFactory.notifyInvokerFuture(xxlRpcResponse.getRequestId(), xxlRpcResponse);
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        release();
+        if (!done) {
+            done = true;
+            nettyHttp2ConnectClient.onStreamFail(requestId, new RpcException("rpc stream closed before response."));
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        release();
+        if (!done) {
+            done = true;
+            nettyHttp2ConnectClient.onStreamFail(requestId, cause);
+        }
+        ctx.close();        // reset this stream only
+    }
+
+    private void release() {
+        if (responseBuf != null) {
+            responseBuf.release();
+            responseBuf = null;
+        }
+    }
+
+}
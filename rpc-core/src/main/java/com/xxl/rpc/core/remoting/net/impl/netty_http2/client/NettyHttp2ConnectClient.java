@@ -0,0 +1,271 @@
+package com.xxl.rpc.core.remoting.net.impl.netty_http2.client;
+
+import com.xxl.rpc.core.remoting.invoker.RpcInvokerFactory;
+import com.xxl.rpc.core.remoting.invoker.reference.RpcReferenceBean;
+import com.xxl.rpc.core.remoting.net.common.ChannelWriter;
+import com.xxl.rpc.core.remoting.net.common.ConnectClient;
+import com.xxl.rpc.core.remoting.net.common.NettyClientOptions;
+import com.xxl.rpc.core.remoting.net.common.TransportMode;
+import com.xxl.rpc.core.remoting.net.impl.netty_http2.server.NettyHttp2ServerStreamHandler;
+import com.xxl.rpc.core.remoting.net.params.BaseCallback;
+import com.xxl.rpc.core.remoting.net.params.Beat;
+import com.xxl.rpc.core.remoting.net.params.RpcRequest;
+import com.xxl.rpc.core.serialize.Serializer;
+import com.xxl.rpc.core.util.IpUtil;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.*;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpScheme;
+import io.netty.handler.codec.http2.*;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * netty_http2, h2c (prior knowledge), one rpc per stream
+ *
+ *      beat: http2 PING frame, acked by server codec;
+ *      serializer: stateless instance, streams of one connection complete out of order;
+ */
+@Slf4j
+public class NettyHttp2ConnectClient extends ConnectClient {
+    private static final Map<TransportMode, EventLoopGroup> eventLoopGroupMap = new EnumMap<>(TransportMode.class);      // shared by clients of same mode
+
+    private Channel channel;
+    private ChannelWriter channelWriter;
+
+    private RpcInvokerFactory xxlRpcInvokerFactory;
+    private Serializer serializer;
+    private String authority;
+
+    @Override
+    public void init(String address, final RpcReferenceBean xxlRpcReferenceBean) throws Exception {
+        final Serializer serializer = xxlRpcReferenceBean.getSerializerInstance();
+        final RpcInvokerFactory xxlRpcInvokerFactory = xxlRpcReferenceBean.getInvokerFactory();
+        TransportMode transportMode = xxlRpcReferenceBean.getTransportMode().resolve();
+
+        // address, IP:PORT or http://IP:PORT
+        if (address.toLowerCase().startsWith("http://")) {
+            address = address.substring("http://".length());
+        }
+        if (address.endsWith("/")) {
+            address = address.substring(0, address.length() - 1);
+        }
+        Object[] array = IpUtil.parseIpPort(address);
+        String host = (String) array[0];
+        int port = (int) array[1];
+
+        // init
+        final NettyHttp2ConnectClient thisClient = this;
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(getEventLoopGroup(transportMode, xxlRpcInvokerFactory))
+                .channel(transportMode.socketChannelClass())
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    public void initChannel(SocketChannel channel) throws Exception {
+                        channel.pipeline()
+                                .addLast(new IdleStateHandler(0, 0, Beat.BEAT_INTERVAL, TimeUnit.SECONDS))    // beat N, close if fail
+                                .addLast(new ConnectionHandler(thisClient))
+                                .addLast(Http2FrameCodecBuilder.forClient().build())
+                                .addLast(new Http2MultiplexHandler(new ChannelInitializer<Http2StreamChannel>() {
+                                    @Override
+                                    protected void initChannel(Http2StreamChannel streamChannel) throws Exception {
+                                        streamChannel.close();      // server push, not supported
+                                    }
+                                }));
+                    }
+                })
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, xxlRpcReferenceBean.getConnectTimeout());
+        NettyClientOptions.apply(bootstrap, xxlRpcReferenceBean, transportMode);
+        this.channel = bootstrap.connect(host, port).sync().channel();
+        this.channelWriter = new ChannelWriter(this.channel, xxlRpcInvokerFactory);
+
+        this.xxlRpcInvokerFactory = xxlRpcInvokerFactory;
+        this.serializer = serializer;
+        this.authority = host + ":" + port;
+
+        // valid
+        if (!isValidate()) {
+            close();
+            return;
+        }
+
+        // handshake, method table
+        handshake(xxlRpcInvokerFactory, xxlRpcReferenceBean.getAccessToken());
+
+        log.debug(">>>>>>>>>>> rpc netty_http2 client proxy, connect to server success at host:{}, port:{}", host, port);
+    }
+
+    private static EventLoopGroup getEventLoopGroup(final TransportMode transportMode, RpcInvokerFactory xxlRpcInvokerFactory) {
+        synchronized (NettyHttp2ConnectClient.class) {
+            EventLoopGroup eventLoopGroup = eventLoopGroupMap.get(transportMode);
+            if (eventLoopGroup == null) {
+                final EventLoopGroup newEventLoopGroup = transportMode.newEventLoopGroup(0);
+                xxlRpcInvokerFactory.addStopCallBack(new BaseCallback() {
+                    @Override
+                    public void run() throws Exception {
+                        synchronized (NettyHttp2ConnectClient.class) {
+                            eventLoopGroupMap.remove(transportMode, newEventLoopGroup);
+                        }
+                        newEventLoopGroup.shutdownGracefully();
+                    }
+                });
+                eventLoopGroupMap.put(transportMode, newEventLoopGroup);
+                eventLoopGroup = newEventLoopGroup;
+            }
+            return eventLoopGroup;
+        }
+    }
+
+    @Override
+    public boolean isValidate() {
+        if (this.channel != null) {
+            return this.channel.isActive();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isWritable() {
+        return this.channel != null && this.channel.isWritable();
+    }
+
+    @Override
+    public boolean awaitWritable(long timeoutMillis) throws InterruptedException {
+        return this.channelWriter != null && this.channelWriter.awaitWritable(timeoutMillis);
+    }
+
+    /**
+     * writability changed or channel inactive, wake up blocked senders
+     */
+    void onWritabilityChanged() {
+        if (this.channelWriter != null) {
+            this.channelWriter.onWritabilityChanged();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.channel != null && this.channel.isActive()) {
+            this.channel.close();        // if this.channel.isOpen()
+        }
+        log.debug(">>>>>>>>>>> rpc netty_http2 client close.");
+    }
+
+
+    @Override
+    public void send(final RpcRequest xxlRpcRequest) throws Exception {
+        // beat, connection level ping
+        if (Beat.BEAT_ID == xxlRpcRequest.getRequestId()) {
+            this.channel.writeAndFlush(new DefaultHttp2PingFrame(System.currentTimeMillis()));
+            return;
+        }
+
+        // serialize on caller thread, into a pooled buffer released once written
+        applyMethodId(xxlRpcRequest);
+        final ByteBuf requestBuf = this.channel.alloc().buffer();
+        try {
+            serializer.serialize(xxlRpcRequest, requestBuf);
+        } catch (Exception e) {
+            requestBuf.release();
+            throw e;
+        }
+
+        // open stream (bootstrap per stream, handler bound to request), write HEADERS + DATA(end of stream)
+        final long requestId = xxlRpcRequest.getRequestId();
+        new Http2StreamChannelBootstrap(this.channel)
+                .handler(new NettyHttp2ClientStreamHandler(xxlRpcInvokerFactory, serializer, this, requestId))
+                .open()
+                .addListener(new GenericFutureListener<Future<Http2StreamChannel>>() {
+                    @Override
+                    public void operationComplete(Future<Http2StreamChannel> future) throws Exception {
+                        if (!future.isSuccess()) {
+                            requestBuf.release();
+                            onStreamFail(requestId, future.cause());
+                            return;
+                        }
+
+                        Http2StreamChannel streamChannel = future.getNow();
+                        Http2Headers headers = new DefaultHttp2Headers()
+                                .method(HttpMethod.POST.asciiName())
+                                .path("/")
+                                .scheme(HttpScheme.HTTP.name())
+                                .authority(authority)
+                                .set(HttpHeaderNames.CONTENT_TYPE, NettyHttp2ServerStreamHandler.CONTENT_TYPE);
+                        streamChannel.write(new DefaultHttp2HeadersFrame(headers, false));
+                        streamChannel.writeAndFlush(new DefaultHttp2DataFrame(requestBuf, true)).addListener(new ChannelFutureListener() {
+                            @Override
+                            public void operationComplete(ChannelFuture future) throws Exception {
+                                if (!future.isSuccess()) {
+                                    future.channel().pipeline().fireExceptionCaught(future.cause());     // fail once, by stream handler
+                                }
+                            }
+                        });
+                    }
+                });
+    }
+
+    /**
+     * stream open or write fail; stream ids used up, close connection and let pool create a new one
+     */
+    void onStreamFail(long requestId, Throwable cause) {
+        if (cause instanceof Http2NoMoreStreamIdsException
+                || (cause != null && cause.getCause() instanceof Http2NoMoreStreamIdsException)) {
+            close();
+        }
+        this.channelWriter.fail(requestId, cause);
+    }
+
+
+    /**
+     * connection level handler, before http2 codec: beat and writability
+     */
+    private static class ConnectionHandler extends ChannelInboundHandlerAdapter {
+
+        private final NettyHttp2ConnectClient nettyHttp2ConnectClient;
+
+        private ConnectionHandler(NettyHttp2ConnectClient nettyHttp2ConnectClient) {
+            this.nettyHttp2ConnectClient = nettyHttp2ConnectClient;
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof IdleStateEvent) {
+                nettyHttp2ConnectClient.send(Beat.BEAT_PING);    // beat N, close if fail(may throw error)
+                log.debug(">>>>>>>>>>> rpc netty_http2 client send beat-ping.");
+            } else {
+                super.userEventTriggered(ctx, evt);
+            }
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+            nettyHttp2ConnectClient.onWritabilityChanged();
+            super.channelWritabilityChanged(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            nettyHttp2ConnectClient.onWritabilityChanged();
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            log.error(">>>>>>>>>>> rpc netty_http2 client caught exception", cause);
+            ctx.close();
+        }
+    }
+
+}
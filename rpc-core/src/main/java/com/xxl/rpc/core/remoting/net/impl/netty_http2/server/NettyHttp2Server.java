@@ -0,0 +1,139 @@
+package com.xxl.rpc.core.remoting.net.impl.netty_http2.server;
+
+import com.xxl.rpc.core.remoting.net.Server;
+import com.xxl.rpc.core.remoting.net.common.NettyServerOptions;
+import com.xxl.rpc.core.remoting.net.common.TransportMode;
+import com.xxl.rpc.core.remoting.net.params.Beat;
+import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
+import com.xxl.rpc.core.util.ThreadPoolUtil;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * netty_http2, h2c (prior knowledge), one rpc per stream
+ *
+ *      flow control, hpack header compression and concurrent streams per connection are provided by netty http2 codec;
+ */
+@Slf4j
+public class NettyHttp2Server extends Server {
+
+    private Thread thread;
+
+    @Override
+    public void start(final RpcProviderFactory xxlRpcProviderFactory) throws Exception {
+
+        thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+
+                // param
+                final ThreadPoolExecutor serverHandlerPool = ThreadPoolUtil.makeServerThreadPool(
+                        NettyHttp2Server.class.getSimpleName(),
+                        xxlRpcProviderFactory.getCorePoolSize(),
+                        xxlRpcProviderFactory.getMaxPoolSize(),
+                        xxlRpcProviderFactory.getQueueType(),
+                        xxlRpcProviderFactory.getQueueCapacity()
+                );
+                TransportMode transportMode = xxlRpcProviderFactory.getTransportMode().resolve();
+                EventLoopGroup bossGroup = transportMode.newEventLoopGroup(xxlRpcProviderFactory.getBossThreads());
+                EventLoopGroup workerGroup = transportMode.newEventLoopGroup(xxlRpcProviderFactory.getWorkerThreads());
+
+                try {
+                    // start server
+                    ServerBootstrap bootstrap = new ServerBootstrap();
+                    bootstrap.group(bossGroup, workerGroup)
+                            .channel(transportMode.serverSocketChannelClass())
+                            .childHandler(new ChannelInitializer<SocketChannel>() {
+                                @Override
+                                public void initChannel(SocketChannel channel) throws Exception {
+                                    channel.pipeline()
+                                            .addLast(new IdleStateHandler(0, 0, Beat.BEAT_INTERVAL * 3, TimeUnit.SECONDS))  // beat 3N (http2 ping), close if idle
+                                            .addLast(new ChannelInboundHandlerAdapter() {
+                                                @Override
+                                                public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+                                                    if (evt instanceof IdleStateEvent) {
+                                                        ctx.channel().close();      // beat 3N, close if idle
+                                                        log.debug(">>>>>>>>>>> rpc provider netty_http2 server close an idle channel.");
+                                                    } else {
+                                                        super.userEventTriggered(ctx, evt);
+                                                    }
+                                                }
+                                            })
+                                            .addLast(Http2FrameCodecBuilder.forServer().build())
+                                            .addLast(new Http2MultiplexHandler(new ChannelInitializer<Http2StreamChannel>() {
+                                                @Override
+                                                protected void initChannel(Http2StreamChannel streamChannel) throws Exception {
+                                                    streamChannel.pipeline().addLast(new NettyHttp2ServerStreamHandler(xxlRpcProviderFactory, serverHandlerPool));
+                                                }
+                                            }));
+                                }
+                            })
+                            .childOption(ChannelOption.TCP_NODELAY, true)
+                            .childOption(ChannelOption.SO_KEEPALIVE, true);
+                    NettyServerOptions.apply(bootstrap, xxlRpcProviderFactory, transportMode);
+
+                    // bind
+                    ChannelFuture future = bootstrap.bind(xxlRpcProviderFactory.getPort()).sync();
+
+                    log.info(">>>>>>>>>>> rpc remoting server start success, nettype = {}, transport = {}, port = {}", NettyHttp2Server.class.getName(), transportMode, xxlRpcProviderFactory.getPort());
+                    onStarted();
+
+                    // wait util stop
+                    future.channel().closeFuture().sync();
+
+                } catch (InterruptedException e) {
+                    log.info(">>>>>>>>>>> rpc remoting server stop.");
+                } catch (Exception e) {
+                    log.error(">>>>>>>>>>> rpc remoting server error.", e);
+                } finally {
+
+                    // stop
+                    try {
+                        serverHandlerPool.shutdown();	// shutdownNow
+                    } catch (Exception e) {
+                        log.error(e.getMessage(), e);
+                    }
+                    try {
+                        workerGroup.shutdownGracefully();
+                        bossGroup.shutdownGracefully();
+                    } catch (Exception e) {
+                        log.error(e.getMessage(), e);
+                    }
+                }
+
+            }
+
+        });
+        thread.setDaemon(true);	// daemon, service jvm, user thread leave >>> daemon leave >>> jvm leave
+        thread.start();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        // destroy server thread
+        if (thread!=null && thread.isAlive()) {
+            thread.interrupt();
+        }
+
+        // on stop
+        onStoped();
+        log.info(">>>>>>>>>>> rpc remoting server destroy success.");
+    }
+
+}
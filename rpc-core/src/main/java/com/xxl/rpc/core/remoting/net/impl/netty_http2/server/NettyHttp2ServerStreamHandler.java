@@ -0,0 +1,158 @@
+package com.xxl.rpc.core.remoting.net.impl.netty_http2.server;
+
+import com.xxl.rpc.core.remoting.net.params.Beat;
+import com.xxl.rpc.core.remoting.net.params.RpcRequest;
+import com.xxl.rpc.core.remoting.net.params.RpcResponse;
+import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
+import com.xxl.rpc.core.util.RpcException;
+import com.xxl.rpc.core.util.ThrowableUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http2.*;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * netty_http2 stream handler, one instance per stream (one rpc)
+ *
+ *      request: HEADERS + DATA..., end of stream; response: HEADERS(:status 200) + DATA, end of stream;
+ */
+@Slf4j
+public class NettyHttp2ServerStreamHandler extends ChannelInboundHandlerAdapter {
+
+    public static final int MAX_CONTENT_LENGTH = 5 * 1024 * 1024;
+    public static final String CONTENT_TYPE = "application/octet-stream";
+
+    private final RpcProviderFactory xxlRpcProviderFactory;
+    private final ThreadPoolExecutor serverHandlerPool;
+
+    private CompositeByteBuf requestBuf;        // event loop only
+
+    public NettyHttp2ServerStreamHandler(RpcProviderFactory xxlRpcProviderFactory, ThreadPoolExecutor serverHandlerPool) {
+        this.xxlRpcProviderFactory = xxlRpcProviderFactory;
+        this.serverHandlerPool = serverHandlerPool;
+    }
+
+
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, Object msg) throws Exception {
+        try {
+            boolean endStream;
+            if (msg instanceof Http2HeadersFrame) {
+                endStream = ((Http2HeadersFrame) msg).isEndStream();
+            } else if (msg instanceof Http2DataFrame) {
+                Http2DataFrame dataFrame = (Http2DataFrame) msg;
+                if (requestBuf == null) {
+                    requestBuf = ctx.alloc().compositeBuffer();
+                }
+                requestBuf.addComponent(true, dataFrame.content().retain());
+                if (requestBuf.readableBytes() > MAX_CONTENT_LENGTH) {
+                    throw new RpcException("rpc request data too large, length:" + requestBuf.readableBytes());
+                }
+                endStream = dataFrame.isEndStream();
+            } else {
+                return;
+            }
+            if (!endStream) {
+                return;
+            }
+
+            // do invoke, request released in business thread
+            final ByteBuf finalRequestBuf = requestBuf;
+            requestBuf = null;
+            try {
+                serverHandlerPool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        process(ctx, finalRequestBuf);
+                    }
+                });
+            } catch (Exception e) {
+                if (finalRequestBuf != null) {
+                    finalRequestBuf.release();
+                }
+                throw e;
+            }
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    private void process(ChannelHandlerContext ctx, ByteBuf requestBuf) {
+        long requestId = 0;
+        try {
+            // valid
+            if (requestBuf == null || !requestBuf.isReadable()) {
+                throw new RpcException("rpc request data empty.");
+            }
+
+            // request deserialize
+            RpcRequest xxlRpcRequest = (RpcRequest) xxlRpcProviderFactory.getSerializerInstance().deserialize(requestBuf, RpcRequest.class);
+            requestId = xxlRpcRequest.getRequestId();
+
+            // filter beat, end stream only
+            if (Beat.BEAT_ID == xxlRpcRequest.getRequestId()){
+                ctx.writeAndFlush(new DefaultHttp2HeadersFrame(new DefaultHttp2Headers().status(HttpResponseStatus.OK.codeAsText()), true));
+                return;
+            }
+
+            // invoke + response
+            RpcResponse xxlRpcResponse = xxlRpcProviderFactory.invokeService(xxlRpcRequest);
+            writeResponse(ctx, xxlRpcResponse);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+
+            // response error
+            RpcResponse xxlRpcResponse = new RpcResponse();
+            xxlRpcResponse.setRequestId(requestId);
+            xxlRpcResponse.setErrorMsg(ThrowableUtil.toString(e));
+            writeResponse(ctx, xxlRpcResponse);
+        } finally {
+            if (requestBuf != null) {
+                requestBuf.release();
+            }
+        }
+    }
+
+    /**
+     * write response, HEADERS + DATA(end of stream)
+     */
+    private void writeResponse(ChannelHandlerContext ctx, RpcResponse xxlRpcResponse) {
+        ByteBuf responseBuf = ctx.alloc().buffer();
+        try {
+            xxlRpcProviderFactory.getSerializerInstance().serialize(xxlRpcResponse, responseBuf);
+        } catch (RuntimeException e) {
+            responseBuf.release();
+            throw e;
+        }
+
+        Http2Headers headers = new DefaultHttp2Headers()
+                .status(HttpResponseStatus.OK.codeAsText())
+                .set(HttpHeaderNames.CONTENT_TYPE, CONTENT_TYPE);
+        ctx.write(new DefaultHttp2HeadersFrame(headers, false));
+        ctx.writeAndFlush(new DefaultHttp2DataFrame(responseBuf, true));
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // stream reset or connection closed before request complete
+        if (requestBuf != null) {
+            requestBuf.release();
+            requestBuf = null;
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        log.error(">>>>>>>>>>> rpc provider netty_http2 server caught exception", cause);
+        ctx.close();        // reset this stream only
+    }
+
+}
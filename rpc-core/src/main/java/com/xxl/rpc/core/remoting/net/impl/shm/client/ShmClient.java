@@ -0,0 +1,24 @@
+package com.xxl.rpc.core.remoting.net.impl.shm.client;
+
+import com.xxl.rpc.core.remoting.net.Client;
+import com.xxl.rpc.core.remoting.net.common.ConnectClient;
+import com.xxl.rpc.core.remoting.net.params.RpcRequest;
+
+/**
+ * shm client, experimental: provider on the same host, started with ShmServer
+ */
+public class ShmClient extends Client {
+
+	private Class<? extends ConnectClient> connectClientImpl = ShmConnectClient.class;
+
+	@Override
+	public void asyncSend(String address, RpcRequest xxlRpcRequest) throws Exception {
+		ConnectClient.asyncSend(xxlRpcRequest, address, connectClientImpl, xxlRpcReferenceBean);
+	}
+
+	@Override
+	public void connect(String address) throws Exception {
+		ConnectClient.connect(address, connectClientImpl, xxlRpcReferenceBean);
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.xxl.rpc.core.remoting.net.impl.shm.client;
+
+import com.xxl.rpc.core.remoting.invoker.RpcInvokerFactory;
+import com.xxl.rpc.core.remoting.invoker.reference.RpcReferenceBean;
+import com.xxl.rpc.core.remoting.net.common.ConnectClient;
+import com.xxl.rpc.core.remoting.net.impl.shm.common.ShmConnection;
+import com.xxl.rpc.core.remoting.net.params.Beat;
+import com.xxl.rpc.core.remoting.net.params.RpcRequest;
+import com.xxl.rpc.core.remoting.net.params.RpcResponse;
+import com.xxl.rpc.core.serialize.Serializer;
+import com.xxl.rpc.core.util.IpUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * shm connect client, one connection file (request ring + response ring) per connection
+ *
+ *      send: serialize on caller thread, write request ring (locked, single producer), wait while full until timeout;
+ *      receive: reader thread polls response ring, busy-spin then park; beat by control block, no beat request;
+ *      serializer: stateless instance, responses out of order;
+ */
+@Slf4j
+public class ShmConnectClient extends ConnectClient {
+
+    private ShmConnection connection;
+    private Serializer serializer;
+    private long writeTimeout;
+    private volatile boolean running = true;
+
+    @Override
+    public void init(String address, RpcReferenceBean xxlRpcReferenceBean) throws Exception {
+        final RpcInvokerFactory xxlRpcInvokerFactory = xxlRpcReferenceBean.getInvokerFactory();
+
+        // address, IP:PORT of provider on this host
+        Object[] array = IpUtil.parseIpPort(address);
+        int port = (int) array[1];
+
+        this.connection = ShmConnection.connect(ShmConnection.serverDirectory(port), ShmConnection.DEFAULT_RING_CAPACITY, xxlRpcReferenceBean.getConnectTimeout());
+        this.serializer = xxlRpcReferenceBean.getSerializerInstance();
+        this.writeTimeout = xxlRpcReferenceBean.getTimeout();
+
+        // reader
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                read(xxlRpcInvokerFactory);
+            }
+        }, "rpc, ShmClient-reader-" + connection.getFile().getName());
+        thread.setDaemon(true);
+        thread.start();
+
+        // handshake, method table
+        handshake(xxlRpcInvokerFactory, xxlRpcReferenceBean.getAccessToken());
+
+        log.debug(">>>>>>>>>>> rpc shm client proxy, connect to server success, file:{}", connection.getFile());
+    }
+
+    private void read(RpcInvokerFactory xxlRpcInvokerFactory) {
+        int idleCount = 0;
+        try {
+            while (running && !connection.isClosed()) {
+                // beat
+                connection.beat(true);
+                if (!connection.isPeerAlive(true)) {
+                    log.info(">>>>>>>>>>> rpc shm client close dead connection, file:{}", connection.getFile());
+                    break;
+                }
+
+                // read
+                byte[] responseBytes = connection.getResponseRing().poll();
+                if (responseBytes == null) {
+                    ShmConnection.idle(idleCount++);
+                    continue;
+                }
+                idleCount = 0;
+
+                // notify response
+                RpcResponse xxlRpcResponse = (RpcResponse) serializer.deserialize(responseBytes, RpcResponse.class);
+                xxlRpcInvokerFactory.notifyInvokerFuture(xxlRpcResponse.getRequestId(), xxlRpcResponse);
+            }
+        } catch (Throwable e) {
+            log.error(">>>>>>>>>>> rpc shm client reader error, file:" + connection.getFile(), e);
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (this.connection != null) {
+            this.connection.close();
+        }
+        log.debug(">>>>>>>>>>> rpc shm client close.");
+    }
+
+    @Override
+    public boolean isValidate() {
+        return this.connection != null && !this.connection.isClosed() && this.connection.isPeerAlive(true);
+    }
+
+    @Override
+    public void send(RpcRequest xxlRpcRequest) throws Exception {
+        // beat, by control block
+        if (Beat.BEAT_ID == xxlRpcRequest.getRequestId()) {
+            return;
+        }
+
+        applyMethodId(xxlRpcRequest);
+        connection.write(connection.getRequestRing(), ShmConnection.encodeRequest(serializer, xxlRpcRequest), writeTimeout);
+    }
+
+}
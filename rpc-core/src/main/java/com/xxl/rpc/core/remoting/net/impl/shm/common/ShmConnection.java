@@ -0,0 +1,277 @@
+package com.xxl.rpc.core.remoting.net.impl.shm.common;
+
+import com.xxl.rpc.core.remoting.net.params.Beat;
+import com.xxl.rpc.core.remoting.net.params.RpcRequest;
+import com.xxl.rpc.core.serialize.Serializer;
+import com.xxl.rpc.core.util.CgroupUtil;
+import com.xxl.rpc.core.util.RpcException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * shm connection, one memory-mapped file per client connection, under server directory "/dev/shm/xxl-rpc-{port}"
+ *
+ *      layout: control(128) + request ring (client -> server) + response ring (server -> client);
+ *      control: magic(4) + state(4) + ringCapacity(4) + pad + client beat(8, at 64) + server beat(8, at 72), millis;
+ *      request record: requestId(8) + serialized request, so server can answer a request it fails to deserialize;
+ *      connect: client creates file and sets CONNECTING, server maps it and sets ACCEPTED; either side sets CLOSED;
+ *      wait: busy-spin, then yield, then park (backoff up to MAX_PARK_NANOS once idle long); peer beat older than 3 beat interval, closed;
+ *      mapping kept until gc (no unmap while a thread may touch it), file deleted on close;
+ */
+public class ShmConnection {
+
+    public static final String FILE_SUFFIX = ".shm";
+    public static final int DEFAULT_RING_CAPACITY = 4 * 1024 * 1024;
+
+    private static final int MAGIC = 0x58525348;        // "XRSH"
+    private static final int CONTROL_LENGTH = 128;
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_STATE = 4;
+    private static final int OFFSET_CAPACITY = 8;
+    private static final int OFFSET_CLIENT_BEAT = 64;
+    private static final int OFFSET_SERVER_BEAT = 72;
+
+    // state
+    public static final int STATE_CONNECTING = 1;
+    public static final int STATE_ACCEPTED = 2;
+    public static final int STATE_CLOSED = 3;
+
+    // wait strategy
+    private static final int SPIN_TRIES = CgroupUtil.availableProcessors() > 1 ? 1000 : 0;       // spinning on single cpu only delays the peer
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final int PARK_TRIES = 200;                                      // ~10ms idle at PARK_NANOS, then backoff
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);    // idle connection wakes ~1k/s, not ~20k/s
+
+    private static final long BEAT_TIMEOUT = TimeUnit.SECONDS.toMillis(Beat.BEAT_INTERVAL * 3);
+
+
+    /**
+     * server directory of port; /dev/shm if exists, otherwise tmp dir (still mapped, but may hit disk)
+     */
+    public static File serverDirectory(int port) {
+        File shm = new File("/dev/shm");
+        File root = shm.isDirectory() ? shm : new File(System.getProperty("java.io.tmpdir"));
+        return new File(root, "xxl-rpc-" + port);
+    }
+
+    /**
+     * client side, create file and wait for server accept
+     */
+    public static ShmConnection connect(File directory, int ringCapacity, long timeoutMillis) throws Exception {
+        if (!directory.isDirectory()) {
+            throw new RpcException("rpc shm server not found, directory["+ directory +"] not exists.");
+        }
+        File file = File.createTempFile("client-", FILE_SUFFIX, directory);
+        ShmConnection connection;
+        try {
+            connection = new ShmConnection(file, ringCapacity);
+        } catch (Exception e) {
+            file.delete();
+            throw e;
+        }
+        connection.beat(true);
+        connection.beat(false);
+        ShmRing.putIntOrdered(connection.controlAddress + OFFSET_MAGIC, MAGIC);
+        ShmRing.putIntOrdered(connection.controlAddress + OFFSET_CAPACITY, ringCapacity);
+        ShmRing.putIntOrdered(connection.controlAddress + OFFSET_STATE, STATE_CONNECTING);
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (connection.getState() == STATE_CONNECTING) {
+            if (System.currentTimeMillis() > deadline) {
+                connection.close();
+                throw new RpcException("rpc shm connect timeout, file:" + file);
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        if (connection.getState() != STATE_ACCEPTED) {
+            connection.close();
+            throw new RpcException("rpc shm connect refused, file:" + file);
+        }
+        return connection;
+    }
+
+    /**
+     * server side, map file created by client; null if not ready or invalid
+     */
+    public static ShmConnection accept(File file) throws Exception {
+        if (file.length() < CONTROL_LENGTH) {
+            return null;
+        }
+        ByteBuffer control = ByteBuffer.allocate(CONTROL_LENGTH).order(ByteOrder.nativeOrder());     // as written by Unsafe
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (control.hasRemaining() && channel.read(control) > 0) {
+                // read control
+            }
+        }
+        if (control.hasRemaining()
+                || control.getInt(OFFSET_MAGIC) != MAGIC
+                || control.getInt(OFFSET_STATE) != STATE_CONNECTING) {
+            return null;
+        }
+        int ringCapacity = control.getInt(OFFSET_CAPACITY);
+        if (ringCapacity <= 0 || file.length() != CONTROL_LENGTH + 2L * ShmRing.length(ringCapacity)) {
+            return null;
+        }
+
+        ShmConnection connection = new ShmConnection(file, ringCapacity);
+        connection.beat(false);
+        ShmRing.putIntOrdered(connection.controlAddress + OFFSET_STATE, STATE_ACCEPTED);
+        return connection;
+    }
+
+
+    // ---------------------- connection ----------------------
+
+    private final File file;
+    private final MappedByteBuffer buffer;      // hold mapping alive
+    private final long controlAddress;
+    private final ShmRing requestRing;
+    private final ShmRing responseRing;
+
+    private ShmConnection(File file, int ringCapacity) throws Exception {
+        if (!PlatformDependent.hasUnsafe()) {
+            throw new RpcException("rpc shm transport requires sun.misc.Unsafe.");
+        }
+        long length = CONTROL_LENGTH + 2L * ShmRing.length(ringCapacity);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+            this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+        this.file = file;
+        this.controlAddress = PlatformDependent.directBufferAddress(buffer);
+        this.requestRing = new ShmRing(controlAddress + CONTROL_LENGTH, ringCapacity);
+        this.responseRing = new ShmRing(controlAddress + CONTROL_LENGTH + ShmRing.length(ringCapacity), ringCapacity);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public ShmRing getRequestRing() {
+        return requestRing;
+    }
+
+    public ShmRing getResponseRing() {
+        return responseRing;
+    }
+
+    public int getState() {
+        return ShmRing.getIntVolatile(controlAddress + OFFSET_STATE);
+    }
+
+    public boolean isClosed() {
+        return getState() == STATE_CLOSED;
+    }
+
+    /**
+     * mark closed for both sides, and delete file; mapping released by gc
+     */
+    public void close() {
+        ShmRing.putIntOrdered(controlAddress + OFFSET_STATE, STATE_CLOSED);
+        file.delete();
+    }
+
+
+    // ---------------------- beat ----------------------
+
+    public void beat(boolean client) {
+        ShmRing.putLongOrdered(controlAddress + (client ? OFFSET_CLIENT_BEAT : OFFSET_SERVER_BEAT), System.currentTimeMillis());
+    }
+
+    /**
+     * peer beat within 3 beat interval
+     */
+    public boolean isPeerAlive(boolean client) {
+        long peerBeat = ShmRing.getLongVolatile(controlAddress + (client ? OFFSET_SERVER_BEAT : OFFSET_CLIENT_BEAT));
+        return System.currentTimeMillis() - peerBeat < BEAT_TIMEOUT;
+    }
+
+
+    // ---------------------- request record ----------------------
+
+    private static final int REQUEST_ID_LENGTH = 8;
+
+    public static byte[] encodeRequest(Serializer serializer, RpcRequest xxlRpcRequest) {
+        ByteBuf buf = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            buf.writeLong(xxlRpcRequest.getRequestId());
+            serializer.serialize(xxlRpcRequest, buf);
+            return ByteBufUtil.getBytes(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * request id, without deserializing the request
+     */
+    public static long decodeRequestId(byte[] record) {
+        if (record.length < REQUEST_ID_LENGTH) {
+            throw new RpcException("rpc shm request record corrupted, length:" + record.length);
+        }
+        return Unpooled.wrappedBuffer(record).getLong(0);
+    }
+
+    public static RpcRequest decodeRequest(Serializer serializer, byte[] record) {
+        ByteBuf body = Unpooled.wrappedBuffer(record, REQUEST_ID_LENGTH, record.length - REQUEST_ID_LENGTH);
+        return (RpcRequest) serializer.deserialize(body, RpcRequest.class);
+    }
+
+
+    // ---------------------- write / wait ----------------------
+
+    /**
+     * write record, lock as single producer; wait while ring full, until timeout or closed
+     */
+    public void write(ShmRing ring, byte[] data, long timeoutMillis) {
+        long deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE;
+        synchronized (ring) {
+            int idleCount = 0;
+            while (!ring.offer(data)) {
+                if (isClosed()) {
+                    throw new RpcException("rpc shm connection closed, file:" + file);
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new RpcException("rpc shm ring full, write timeout, file:" + file);
+                }
+                idle(idleCount++);
+            }
+        }
+    }
+
+    /**
+     * busy-spin first (lowest latency), then yield, then park (bounded cpu when idle); park time doubled up to
+     * MAX_PARK_NANOS once idle past PARK_TRIES parks, so a long idle connection costs few wakeups
+     */
+    public static void idle(int idleCount) {
+        if (idleCount < 0) {
+            idleCount = Integer.MAX_VALUE;      // overflowed by a very long idle, stay parked
+        }
+        int parkCount = idleCount - SPIN_TRIES - YIELD_TRIES;
+        if (idleCount < SPIN_TRIES) {
+            // spin
+        } else if (parkCount < 0) {
+            Thread.yield();
+        } else if (parkCount < PARK_TRIES) {
+            LockSupport.parkNanos(PARK_NANOS);
+        } else {
+            int shift = Math.min(parkCount - PARK_TRIES + 1, 5);
+            LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, PARK_NANOS << shift));
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.xxl.rpc.core.remoting.net.impl.shm.common;
+
+import com.xxl.rpc.core.util.RpcException;
+import io.netty.util.internal.PlatformDependent;
+
+import java.lang.reflect.Field;
+
+/**
+ * single-producer / single-consumer byte ring, over shared memory (raw address)
+ *
+ *      layout: head(8, consumer) + pad + tail(8, producer) + pad + data(capacity, power of 2);
+ *      record: length(4) + bytes, 8 aligned; length -1 pads the end of data, record never wraps;
+ *      producer publishes tail by ordered store after record written, consumer publishes head after record copied out;
+ *      not thread-safe: one producer and one consumer at a time, callers lock if more;
+ *      memory: plain access and copy by netty PlatformDependent; volatile / ordered access (not exposed by netty) by direct
+ *      Unsafe, in accessors of "shared field" only;
+ */
+public class ShmRing {
+
+    public static final int HEADER_LENGTH = 128;
+    private static final int OFFSET_HEAD = 0;
+    private static final int OFFSET_TAIL = 64;          // own cache line, no false sharing with head
+    private static final int RECORD_HEADER = 4;
+    private static final int PADDING = -1;
+
+    private final long headAddress;
+    private final long tailAddress;
+    private final long dataAddress;
+    private final int capacity;
+    private final int mask;
+
+    /**
+     * @param address   ring start, HEADER_LENGTH + capacity bytes
+     * @param capacity  data bytes, power of 2
+     */
+    public ShmRing(long address, int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new RpcException("rpc shm ring capacity["+ capacity +"] invalid, must be power of 2.");
+        }
+        this.headAddress = address + OFFSET_HEAD;
+        this.tailAddress = address + OFFSET_TAIL;
+        this.dataAddress = address + HEADER_LENGTH;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    public static int length(int capacity) {
+        return HEADER_LENGTH + capacity;
+    }
+
+    /**
+     * max bytes of one record
+     */
+    public int maxRecordLength() {
+        return capacity - RECORD_HEADER;
+    }
+
+    public boolean isEmpty() {
+        return getLongVolatile(headAddress) == getLongVolatile(tailAddress);
+    }
+
+
+    // ---------------------- producer ----------------------
+
+    /**
+     * write record, false if no space now
+     */
+    public boolean offer(byte[] data) {
+        if (data.length > maxRecordLength()) {
+            throw new RpcException("rpc shm record too large, length:" + data.length + ", max:" + maxRecordLength());
+        }
+        int recordLength = align(RECORD_HEADER + data.length);
+
+        long tail = PlatformDependent.getLong(tailAddress);        // written by this producer only
+        long head = getLongVolatile(headAddress);
+        int offset = (int) (tail & mask);
+
+        // no room before the end, pad and restart at 0
+        int padLength = capacity - offset;
+        if (recordLength > padLength) {
+            if (capacity - (tail - head) < padLength) {
+                return false;
+            }
+            PlatformDependent.putInt(dataAddress + offset, PADDING);
+            tail += padLength;
+            putLongOrdered(tailAddress, tail);
+            offset = 0;
+        }
+        if (capacity - (tail - head) < recordLength) {
+            return false;
+        }
+
+        // write, then publish
+        PlatformDependent.putInt(dataAddress + offset, data.length);
+        PlatformDependent.copyMemory(data, 0, dataAddress + offset + RECORD_HEADER, data.length);
+        putLongOrdered(tailAddress, tail + recordLength);
+        return true;
+    }
+
+
+    // ---------------------- consumer ----------------------
+
+    /**
+     * read record, null if empty now
+     */
+    public byte[] poll() {
+        long head = PlatformDependent.getLong(headAddress);        // written by this consumer only
+        while (head != getLongVolatile(tailAddress)) {
+            int offset = (int) (head & mask);
+            int length = PlatformDependent.getInt(dataAddress + offset);
+            if (length == PADDING) {
+                head += capacity - offset;
+                putLongOrdered(headAddress, head);
+                continue;
+            }
+            if (length < 0 || length > maxRecordLength()) {
+                throw new RpcException("rpc shm ring corrupted, record length:" + length);
+            }
+
+            // copy out, then release space
+            byte[] data = new byte[length];
+            PlatformDependent.copyMemory(dataAddress + offset + RECORD_HEADER, data, 0, length);
+            putLongOrdered(headAddress, head + align(RECORD_HEADER + length));
+            return data;
+        }
+        return null;
+    }
+
+    private static int align(int length) {
+        return (length + 7) & ~7;
+    }
+
+
+    // ---------------------- shared field ----------------------
+
+    /**
+     * volatile / ordered access by address: direct sun.misc.Unsafe, the only raw Unsafe use of shm (kept here on purpose);
+     * PlatformDependent has no such access, and VarHandle needs java 9+; javac warns on this section, expected
+     */
+    private static final sun.misc.Unsafe UNSAFE;
+    static {
+        try {
+            Field field = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            UNSAFE = (sun.misc.Unsafe) field.get(null);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static long getLongVolatile(long address) {
+        return UNSAFE.getLongVolatile(null, address);
+    }
+
+    static void putLongOrdered(long address, long value) {
+        UNSAFE.putOrderedLong(null, address, value);
+    }
+
+    static int getIntVolatile(long address) {
+        return UNSAFE.getIntVolatile(null, address);
+    }
+
+    static void putIntOrdered(long address, int value) {
+        UNSAFE.putOrderedInt(null, address, value);
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.xxl.rpc.core.remoting.net.impl.shm.server;
+
+import com.xxl.rpc.core.remoting.net.Server;
+import com.xxl.rpc.core.remoting.net.impl.shm.common.ShmConnection;
+import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
+import com.xxl.rpc.core.util.RpcException;
+import com.xxl.rpc.core.util.ThreadPoolUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * shm server, experimental: consumers on the same host exchange frames by memory-mapped files, no socket
+ *
+ *      directory "/dev/shm/xxl-rpc-{port}", scanned for connection files created by ShmClient;
+ *      one reader thread per connection, invoke on business pool, response written to connection ring;
+ */
+@Slf4j
+public class ShmServer extends Server {
+
+    private static final long ACCEPT_INTERVAL = 10;     // ms, connect latency only
+
+    private Thread thread;
+    private final Map<String, ShmServerHandler> handlers = new ConcurrentHashMap<>();
+
+    @Override
+    public void start(final RpcProviderFactory xxlRpcProviderFactory) throws Exception {
+
+        // directory, stale connection files of previous server removed
+        final File directory = ShmConnection.serverDirectory(xxlRpcProviderFactory.getPort());
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new RpcException("rpc shm server directory["+ directory +"] create fail.");
+        }
+        deleteConnectionFiles(directory);
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+
+                // param
+                final ThreadPoolExecutor serverHandlerPool = ThreadPoolUtil.makeServerThreadPool(
+                        ShmServer.class.getSimpleName(),
+                        xxlRpcProviderFactory.getCorePoolSize(),
+                        xxlRpcProviderFactory.getMaxPoolSize(),
+                        xxlRpcProviderFactory.getQueueType(),
+                        xxlRpcProviderFactory.getQueueCapacity()
+                );
+
+                log.info(">>>>>>>>>>> rpc remoting server start success, nettype = {}, directory = {}", ShmServer.class.getName(), directory);
+                onStarted();
+
+                try {
+                    // accept, until stop
+                    while (!Thread.currentThread().isInterrupted()) {
+                        File[] files = directory.listFiles();
+                        if (files != null) {
+                            for (File file : files) {
+                                if (!file.getName().endsWith(ShmConnection.FILE_SUFFIX) || handlers.containsKey(file.getName())) {
+                                    continue;
+                                }
+                                try {
+                                    ShmConnection connection = ShmConnection.accept(file);
+                                    if (connection != null) {
+                                        ShmServerHandler handler = new ShmServerHandler(connection, xxlRpcProviderFactory, serverHandlerPool, handlers);
+                                        handlers.put(file.getName(), handler);
+                                        handler.start();
+                                    }
+                                } catch (Exception e) {
+                                    log.error(">>>>>>>>>>> rpc shm server accept fail, file:" + file, e);
+                                }
+                            }
+                        }
+                        TimeUnit.MILLISECONDS.sleep(ACCEPT_INTERVAL);
+                    }
+                } catch (InterruptedException e) {
+                    log.info(">>>>>>>>>>> rpc remoting server stop.");
+                } finally {
+
+                    // stop
+                    for (ShmServerHandler handler : handlers.values()) {
+                        handler.close();
+                    }
+                    try {
+                        serverHandlerPool.shutdown();	// shutdownNow
+                    } catch (Exception e) {
+                        log.error(e.getMessage(), e);
+                    }
+                    deleteConnectionFiles(directory);
+                    directory.delete();
+                }
+
+            }
+        });
+        thread.setDaemon(true);	// daemon, service jvm, user thread leave >>> daemon leave >>> jvm leave
+        thread.start();
+    }
+
+    private static void deleteConnectionFiles(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(ShmConnection.FILE_SUFFIX)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void stop() throws Exception {
+        // destroy server thread
+        if (thread!=null && thread.isAlive()) {
+            thread.interrupt();
+        }
+
+        // on stop
+        onStoped();
+        log.info(">>>>>>>>>>> rpc remoting server destroy success.");
+    }
+
+}
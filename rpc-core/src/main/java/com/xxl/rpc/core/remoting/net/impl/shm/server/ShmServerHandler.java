@@ -0,0 +1,138 @@
+package com.xxl.rpc.core.remoting.net.impl.shm.server;
+
+import com.xxl.rpc.core.remoting.net.impl.shm.common.ShmConnection;
+import com.xxl.rpc.core.remoting.net.params.RpcRequest;
+import com.xxl.rpc.core.remoting.net.params.RpcResponse;
+import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
+import com.xxl.rpc.core.serialize.Serializer;
+import com.xxl.rpc.core.util.ThrowableUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * shm server handler, one reader thread per connection
+ *
+ *      read request ring, invoke on business pool, write response ring (locked, single producer);
+ *      request id read from record header, never by deserialize on reader thread; error response always to the real request;
+ *      response ring full past RESPONSE_WRITE_TIMEOUT (client not draining): connection closed, business threads released;
+ *      beat every loop round, closed if client closed or dead;
+ */
+@Slf4j
+public class ShmServerHandler implements Runnable {
+
+    private static final long RESPONSE_WRITE_TIMEOUT = TimeUnit.SECONDS.toMillis(3);      // wait while ring full, then close
+
+    private final ShmConnection connection;
+    private final RpcProviderFactory xxlRpcProviderFactory;
+    private final ThreadPoolExecutor serverHandlerPool;
+    private final Map<String, ShmServerHandler> handlers;
+    private final Serializer serializer;
+
+    private volatile boolean running = true;
+
+    public ShmServerHandler(ShmConnection connection, RpcProviderFactory xxlRpcProviderFactory, ThreadPoolExecutor serverHandlerPool, Map<String, ShmServerHandler> handlers) {
+        this.connection = connection;
+        this.xxlRpcProviderFactory = xxlRpcProviderFactory;
+        this.serverHandlerPool = serverHandlerPool;
+        this.handlers = handlers;
+        this.serializer = xxlRpcProviderFactory.getSerializerInstance();       // stateless instance, responses out of order
+    }
+
+    public void start() {
+        Thread thread = new Thread(this, "rpc, ShmServer-reader-" + connection.getFile().getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void close() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        int idleCount = 0;
+        try {
+            while (running && !connection.isClosed()) {
+                // beat
+                connection.beat(false);
+                if (!connection.isPeerAlive(false)) {
+                    log.info(">>>>>>>>>>> rpc shm server close dead connection, file:{}", connection.getFile());
+                    break;
+                }
+
+                // read
+                byte[] requestBytes = connection.getRequestRing().poll();
+                if (requestBytes == null) {
+                    ShmConnection.idle(idleCount++);
+                    continue;
+                }
+                idleCount = 0;
+                dispatch(requestBytes);
+            }
+        } catch (Throwable e) {
+            log.error(">>>>>>>>>>> rpc shm server reader error, file:" + connection.getFile(), e);
+        } finally {
+            connection.close();
+            handlers.remove(connection.getFile().getName());
+        }
+    }
+
+    private void dispatch(final byte[] requestBytes) {
+        final long requestId = ShmConnection.decodeRequestId(requestBytes);
+        try {
+            serverHandlerPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    process(requestId, requestBytes);
+                }
+            });
+        } catch (Exception e) {
+            // pool exhausted, fail fast instead of blocking the reader
+            writeError(requestId, e);
+        }
+    }
+
+    private void process(long requestId, byte[] requestBytes) {
+        RpcResponse xxlRpcResponse;
+        try {
+            RpcRequest xxlRpcRequest = ShmConnection.decodeRequest(serializer, requestBytes);
+
+            // invoke
+            xxlRpcResponse = xxlRpcProviderFactory.invokeService(xxlRpcRequest);
+        } catch (Throwable e) {
+            log.error(e.getMessage(), e);
+            writeError(requestId, e);
+            return;
+        }
+        writeResponse(xxlRpcResponse);
+    }
+
+    private void writeError(long requestId, Throwable e) {
+        RpcResponse xxlRpcResponse = new RpcResponse();
+        xxlRpcResponse.setRequestId(requestId);
+        xxlRpcResponse.setErrorMsg(ThrowableUtil.toString(e));
+        writeResponse(xxlRpcResponse);
+    }
+
+    private void writeResponse(RpcResponse xxlRpcResponse) {
+        byte[] responseBytes;
+        try {
+            responseBytes = serializer.serialize(xxlRpcResponse);
+        } catch (Throwable e) {
+            log.error(e.getMessage(), e);
+            writeError(xxlRpcResponse.getRequestId(), e);
+            return;
+        }
+        try {
+            connection.write(connection.getResponseRing(), responseBytes, RESPONSE_WRITE_TIMEOUT);
+        } catch (Exception e) {
+            // client not draining (or closed), give up the connection instead of holding business threads
+            log.error(">>>>>>>>>>> rpc shm server write response fail, close connection, requestId:" + xxlRpcResponse.getRequestId() + ", file:" + connection.getFile(), e);
+            connection.close();
+        }
+    }
+
+}
@@ -8,7 +8,7 @@ package com.xxl.rpc.core.remoting.net.params;
 public final class Beat {
 
     public static final int BEAT_INTERVAL = 30;
-    public static final String BEAT_ID = "BEAT_PING_PONG";
+    public static final long BEAT_ID = -1;
 
     public static RpcRequest BEAT_PING;
 
@@ -0,0 +1,27 @@
+package com.xxl.rpc.core.remoting.net.params;
+
+/**
+ * handshake when connected, fetch method table of provider
+ *
+ *      provider publish "(serviceKey, method signature) → method id", then client send method id instead of className/methodName/parameterTypes/version;
+ *      access token checked by provider before publish, method table not exposed to unauthenticated client;
+ */
+public final class Handshake {
+
+    public static final long HANDSHAKE_TIMEOUT = 3000;
+    public static final String HANDSHAKE_CLASS = "HANDSHAKE_METHOD_TABLE";
+
+    public static RpcRequest newRequest(long requestId, String accessToken) {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(requestId);
+        request.setCreateMillisTime(System.currentTimeMillis());
+        request.setAccessToken(accessToken);
+        request.setClassName(HANDSHAKE_CLASS);
+        return request;
+    }
+
+    public static boolean isHandshake(RpcRequest request) {
+        return HANDSHAKE_CLASS.equals(request.getClassName());
+    }
+
+}
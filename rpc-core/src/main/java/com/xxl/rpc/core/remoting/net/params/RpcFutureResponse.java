@@ -1,36 +1,68 @@
 package com.xxl.rpc.core.remoting.net.params;
 
 import com.xxl.rpc.core.remoting.invoker.RpcInvokerFactory;
+import com.xxl.rpc.core.remoting.invoker.call.RpcCompletableFuture;
 import com.xxl.rpc.core.remoting.invoker.call.RpcInvokeCallback;
+import com.xxl.rpc.core.remoting.net.common.ConnectClient;
 import com.xxl.rpc.core.util.RpcException;
+import io.netty.util.Timeout;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * call back future
  *
+ *      lock-free: response set once by CAS, waiters parked on a stack (treiber) and unparked by completer;
+ *      timeout: expired by timer of invoker factory (RpcInvokerFactory.scheduleTimeout), completed with timeout response;
+ *      cancel: completed as cancelled, removed from pending pool, late response dropped; provider told by connection sent by (ConnectClient.cancelRequest);
+ *
  * @author mzj 2015-11-5 14:26:37
  */
 public class RpcFutureResponse implements Future<RpcResponse> {
 
+	private static final AtomicReferenceFieldUpdater<RpcFutureResponse, RpcResponse> RESPONSE_UPDATER =
+			AtomicReferenceFieldUpdater.newUpdater(RpcFutureResponse.class, RpcResponse.class, "response");
+	private static final AtomicReferenceFieldUpdater<RpcFutureResponse, WaitNode> WAITERS_UPDATER =
+			AtomicReferenceFieldUpdater.newUpdater(RpcFutureResponse.class, WaitNode.class, "waiters");
+	private static final AtomicReferenceFieldUpdater<RpcFutureResponse, Object> CONNECT_CLIENT_UPDATER =
+			AtomicReferenceFieldUpdater.newUpdater(RpcFutureResponse.class, Object.class, "connectClient");
+	private static final Object RELEASED = new Object();
+
 	private RpcInvokerFactory invokerFactory;
 
 	// net data
 	private RpcRequest request;
-	private RpcResponse response;
+	private volatile RpcResponse response;		// null = not done
 
-	// future lock
-	private boolean done = false;
-	private Object lock = new Object();
+	// waiters, parked in get
+	private volatile WaitNode waiters;
+	private volatile boolean cancelled = false;
 
 	// callback, can be null
-	private RpcInvokeCallback invokeCallback;
+	private RpcInvokeCallback<?> invokeCallback;
+
+	// completable future, completed by response directly; can be null
+	private RpcCompletableFuture completableFuture;
+	private volatile Timeout timeout;
+
+	// connection sent by, its pending count held until removed from pending pool; RELEASED once removed
+	private volatile Object connectClient;
+
 
+	public RpcFutureResponse(final RpcInvokerFactory invokerFactory, RpcRequest request, RpcInvokeCallback<?> invokeCallback) {
+		this(invokerFactory, request, invokeCallback, null);
+	}
 
-	public RpcFutureResponse(final RpcInvokerFactory invokerFactory, RpcRequest request, RpcInvokeCallback invokeCallback) {
+	public RpcFutureResponse(final RpcInvokerFactory invokerFactory, RpcRequest request, RpcInvokeCallback<?> invokeCallback, RpcCompletableFuture completableFuture) {
 		this.invokerFactory = invokerFactory;
 		this.request = request;
 		this.invokeCallback = invokeCallback;
+		this.completableFuture = completableFuture;
+		if (completableFuture != null) {
+			completableFuture.setFutureResponse(this);
+		}
 
 		// set-InvokerFuture
 		setInvokerFuture();
@@ -44,6 +76,7 @@ public class RpcFutureResponse implements Future<RpcResponse> {
 	}
 	public void removeInvokerFuture(){
 		this.invokerFactory.removeInvokerFuture(request.getRequestId());
+		cancelTimeout();
 	}
 
 
@@ -52,19 +85,72 @@ public class RpcFutureResponse implements Future<RpcResponse> {
 	public RpcRequest getRequest() {
 		return request;
 	}
-	public RpcInvokeCallback getInvokeCallback() {
+	public RpcInvokeCallback<?> getInvokeCallback() {
 		return invokeCallback;
 	}
+	public RpcCompletableFuture getCompletableFuture() {
+		return completableFuture;
+	}
+
+
+	// ---------------------- timeout ----------------------
+
+	public void setTimeout(Timeout timeout) {
+		this.timeout = timeout;
+	}
+	public void cancelTimeout() {
+		Timeout timeout = this.timeout;
+		if (timeout != null) {
+			timeout.cancel();
+		}
+	}
+
+
+	// ---------------------- connection pending ----------------------
+
+	/**
+	 * count as pending of the connection sent by, until released; false if already removed from pending pool (not counted)
+	 */
+	public boolean bindConnectClient(ConnectClient connectClient) {
+		connectClient.incrementPending();
+		if (CONNECT_CLIENT_UPDATER.compareAndSet(this, null, connectClient)) {
+			return true;
+		}
+		connectClient.decrementPending();		// released before bind, or bound already
+		return false;
+	}
+
+	/**
+	 * removed from pending pool (response, timeout, cancel, or write fail), pending of the connection released once
+	 */
+	public void releaseConnectClient() {
+		Object connectClient = CONNECT_CLIENT_UPDATER.getAndSet(this, RELEASED);
+		if (connectClient instanceof ConnectClient) {
+			((ConnectClient) connectClient).decrementPending();
+		}
+	}
 
 
 	// ---------------------- for invoke back ----------------------
 
-	public void setResponse(RpcResponse response) {
-		this.response = response;
-		synchronized (lock) {
-			done = true;
-			lock.notifyAll();
+	/**
+	 * complete, once; false if already done (responded, expired or cancelled)
+	 */
+	public boolean setResponse(RpcResponse response) {
+		if (!RESPONSE_UPDATER.compareAndSet(this, null, response)) {
+			return false;
+		}
+
+		// wake up waiters
+		WaitNode waitNode = WAITERS_UPDATER.getAndSet(this, null);
+		while (waitNode != null) {
+			Thread thread = waitNode.thread;
+			if (thread != null) {
+				LockSupport.unpark(thread);
+			}
+			waitNode = waitNode.next;
 		}
+		return true;
 	}
 
 
@@ -72,19 +158,30 @@ public class RpcFutureResponse implements Future<RpcResponse> {
 
 	@Override
 	public boolean cancel(boolean mayInterruptIfRunning) {
-		// TODO
-		return false;
+		RpcResponse cancelResponse = new RpcResponse();
+		cancelResponse.setRequestId(request.getRequestId());
+		cancelResponse.setErrorMsg("rpc, request cancelled, request:" + request);
+
+		if (!setResponse(cancelResponse)) {
+			return false;
+		}
+		cancelled = true;
+		Object sentBy = this.connectClient;
+		removeInvokerFuture();
+		if (sentBy instanceof ConnectClient) {
+			((ConnectClient) sentBy).cancelRequest(request.getRequestId());		// provider may skip it, if not started
+		}
+		return true;
 	}
 
 	@Override
 	public boolean isCancelled() {
-		// TODO
-		return false;
+		return cancelled;
 	}
 
 	@Override
 	public boolean isDone() {
-		return done;
+		return response != null;
 	}
 
 	@Override
@@ -98,26 +195,47 @@ public class RpcFutureResponse implements Future<RpcResponse> {
 
 	@Override
 	public RpcResponse get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-		if (!done) {
-			synchronized (lock) {
-				try {
-					if (timeout < 0) {
-						lock.wait();
-					} else {
-						long timeoutMillis = (TimeUnit.MILLISECONDS==unit)?timeout:TimeUnit.MILLISECONDS.convert(timeout , unit);
-						lock.wait(timeoutMillis);
-					}
-				} catch (InterruptedException e) {
-					throw e;
+		RpcResponse response = this.response;
+		if (response != null) {
+			return response;
+		}
+
+		// park until done, re-check after push (completer may have drained waiters before)
+		boolean timed = timeout > 0;
+		long deadline = timed ? System.nanoTime() + unit.toNanos(timeout) : 0;
+		WaitNode waitNode = new WaitNode(Thread.currentThread());
+		do {
+			waitNode.next = waiters;
+		} while (!WAITERS_UPDATER.compareAndSet(this, waitNode.next, waitNode));
+
+		try {
+			while ((response = this.response) == null) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
 				}
+				if (!timed) {
+					LockSupport.park(this);
+					continue;
+				}
+				long remain = deadline - System.nanoTime();
+				if (remain <= 0) {
+					throw new RpcException("rpc, request timeout at:"+ System.currentTimeMillis() +", request:" + request.toString());
+				}
+				LockSupport.parkNanos(this, remain);
 			}
+			return response;
+		} finally {
+			waitNode.thread = null;		// not unparked once gone
 		}
+	}
 
-		if (!done) {
-			throw new RpcException("rpc, request timeout at:"+ System.currentTimeMillis() +", request:" + request.toString());
+	private static final class WaitNode {
+		private volatile Thread thread;
+		private volatile WaitNode next;
+
+		private WaitNode(Thread thread) {
+			this.thread = thread;
 		}
-		return response;
 	}
 
-
 }
@@ -10,10 +10,12 @@ import java.io.Serializable;
 @Data
 public class RpcRequest implements Serializable{
 
-	private String requestId;
+	private long requestId;				// > 0, generated by invoker factory
 	private long createMillisTime;
 	private String accessToken;
 
+	private int methodId;				// method id from provider handshake; if > 0, className/methodName/parameterTypes/version are omitted
+
     private String className;
     private String methodName;
     private Class<?>[] parameterTypes;
@@ -21,4 +23,6 @@ public class RpcRequest implements Serializable{
 
 	private String version;
 
+	private transient String methodKey;		// local only, precomputed by client method descriptor
+
 }
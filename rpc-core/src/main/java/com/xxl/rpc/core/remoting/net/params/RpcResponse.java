@@ -10,7 +10,7 @@ import java.io.Serializable;
 @Data
 public class RpcResponse implements Serializable{
 
-	private String requestId;
+	private long requestId;
     private String errorMsg;
     private Object result;
 
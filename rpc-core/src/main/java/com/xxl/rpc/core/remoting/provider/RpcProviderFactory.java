@@ -2,23 +2,37 @@ package com.xxl.rpc.core.remoting.provider;
 
 import com.xxl.rpc.core.registry.Register;
 import com.xxl.rpc.core.remoting.net.Server;
+import com.xxl.rpc.core.remoting.net.common.BufferAllocator;
+import com.xxl.rpc.core.remoting.net.common.TransportMode;
+import com.xxl.rpc.core.remoting.net.impl.netty.codec.NettyFrame;
 import com.xxl.rpc.core.remoting.net.impl.netty.server.NettyServer;
 import com.xxl.rpc.core.remoting.net.params.BaseCallback;
+import com.xxl.rpc.core.remoting.net.params.Handshake;
 import com.xxl.rpc.core.remoting.net.params.RpcRequest;
 import com.xxl.rpc.core.remoting.net.params.RpcResponse;
 import com.xxl.rpc.core.serialize.Serializer;
 import com.xxl.rpc.core.serialize.impl.JavaSerializer;
+import com.xxl.rpc.core.util.CgroupUtil;
 import com.xxl.rpc.core.util.IpUtil;
 import com.xxl.rpc.core.util.NetUtil;
 import com.xxl.rpc.core.util.RpcException;
+import com.xxl.rpc.core.util.ThreadPoolUtil;
 import com.xxl.rpc.core.util.ThrowableUtil;
+import io.netty.channel.epoll.Epoll;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * provider
@@ -34,13 +48,32 @@ public class RpcProviderFactory {
 
 	private Class<? extends Server> server = NettyServer.class;
 	private Class<? extends Serializer> serializer = JavaSerializer.class;
+	private TransportMode transportMode = TransportMode.NIO;
+
+	private boolean reusePort = false;			// epoll only, SO_REUSEPORT: allow another provider process bind the same port (rolling restart)
+	private boolean tcpQuickAck = false;		// epoll only, TCP_QUICKACK
 
 	private int corePoolSize = 60;
 	private int maxPoolSize = 300;
+	private ThreadPoolUtil.QueueType queueType = ThreadPoolUtil.QueueType.LINKED;
+	private int queueCapacity = ThreadPoolUtil.DEFAULT_QUEUE_CAPACITY;
+
+	private boolean autoProfile = false;		// derive workerThreads / corePoolSize / maxPoolSize (if left default) from cgroup cpu quota, not host cores
+	private int bossThreads = 1;
+	private int workerThreads = 0;				// 0 = netty default, 2 * cores
+	private int backlog = 0;					// SO_BACKLOG, 0 = system default
+	private int receiveBufferSize = 0;			// SO_RCVBUF, 0 = system default
+	private int sendBufferSize = 0;				// SO_SNDBUF, 0 = system default
+	private int writeBufferLowWaterMark = 0;	// 0 = netty default, 32K
+	private int writeBufferHighWaterMark = 0;	// 0 = netty default, 64K
+	private BufferAllocator allocator = BufferAllocator.POOLED;
+	private boolean offloadSerialize = false;	// NettyServer only, (de)serialize on business thread instead of io thread; not for connection-scoped serializer
+	private int maxFrameLength = NettyFrame.DEFAULT_MAX_FRAME_LENGTH;	// NettyServer only, request frame over it rejected by header (error response, body skipped; channel kept, closed if serializer connection-scoped)
 
 	private String ip = null;					// server ip, for registry
 	private int port = 7080;					// server default port
-	private String registryAddress;				// default use registryAddress to registry , otherwise use ip:port if registryAddress is null
+	private String registryAddress;				// default use registryAddress to registry , otherwise use ip:port if registryAddress is null; "unix:/path" for co-located consumers
+	private String unixSocketPath = null;		// NettyServer only (epoll), also listen on unix domain socket of this path; default from "unix:" registryAddress
 	private String accessToken = null;
 
 	private Class<? extends Register> serviceRegistry = null;
@@ -63,10 +96,34 @@ public class RpcProviderFactory {
 		if (this.serializer==null) {
 			throw new RpcException("rpc provider serializer missing.");
 		}
+		if (this.transportMode==null) {
+			this.transportMode = TransportMode.NIO;
+		}
+		if (this.autoProfile) {
+			autoProfile();
+		}
 		if (!(this.corePoolSize>0 && this.maxPoolSize>0 && this.maxPoolSize>=this.corePoolSize)) {
 			this.corePoolSize = 60;
 			this.maxPoolSize = 300;
 		}
+		if (this.queueType == null) {
+			this.queueType = ThreadPoolUtil.QueueType.LINKED;
+		}
+		if (this.queueCapacity <= 0) {
+			this.queueCapacity = ThreadPoolUtil.DEFAULT_QUEUE_CAPACITY;
+		}
+		if (this.bossThreads <= 0) {
+			this.bossThreads = 1;
+		}
+		if (this.workerThreads < 0) {
+			this.workerThreads = 0;
+		}
+		if (this.maxFrameLength <= 0) {
+			this.maxFrameLength = NettyFrame.DEFAULT_MAX_FRAME_LENGTH;
+		}
+		if (this.allocator == null) {
+			this.allocator = BufferAllocator.POOLED;
+		}
 		if (this.ip == null) {
 			this.ip = IpUtil.getIp();
 		}
@@ -76,12 +133,28 @@ public class RpcProviderFactory {
 		if (this.registryAddress==null || this.registryAddress.trim().length()==0) {
 			this.registryAddress = IpUtil.getIpPort(this.ip, this.port);
 		}
-		if (NetUtil.isPortUsed(this.port)) {
+		if (this.unixSocketPath == null && IpUtil.isUnixAddress(this.registryAddress)) {
+			this.unixSocketPath = IpUtil.getUnixPath(this.registryAddress);
+		}
+		if (this.unixSocketPath != null) {
+			if (!Epoll.isAvailable()) {
+				throw new RpcException("rpc provider unix domain socket["+ this.unixSocketPath +"] requires epoll, unavailable: " + Epoll.unavailabilityCause());
+			}
+			if (this.transportMode == TransportMode.NIO) {
+				log.info(">>>>>>>>>>> rpc provider unix domain socket enabled, transportMode switch to EPOLL.");
+				this.transportMode = TransportMode.EPOLL;		// domain socket channel needs epoll event loop
+			}
+		}
+		if (!(this.reusePort && this.transportMode.isEpoll()) && NetUtil.isPortUsed(this.port)) {
 			throw new RpcException("rpc provider port["+ this.port +"] is used.");
 		}
 
 		// init serializerInstance
 		this.serializerInstance = serializer.newInstance();
+		if (this.offloadSerialize && this.serializerInstance.forConnection() != this.serializerInstance) {
+			log.warn(">>>>>>>>>>> rpc provider offloadSerialize ignored, serializer[{}] is connection-scoped.", serializer.getName());
+			this.offloadSerialize = false;		// decode in wire order
+		}
 
 		// start server
 		serverInstance = server.newInstance();
@@ -112,14 +185,92 @@ public class RpcProviderFactory {
 			}
 		});
 		serverInstance.start(this);
+
+		// visible to in-jvm consumers
+		updateLocalProvider(this, true);
+	}
+
+	/**
+	 * size by cgroup cpu quota; only fields left default are changed
+	 */
+	private void autoProfile() {
+		int processors = CgroupUtil.availableProcessors();
+		if (this.workerThreads == 0) {
+			this.workerThreads = processors * 2;
+		}
+		if (this.corePoolSize == 60 && this.maxPoolSize == 300) {
+			this.corePoolSize = Math.max(8, Math.min(60, processors * 16));
+			this.maxPoolSize = Math.max(this.corePoolSize, Math.min(300, processors * 64));
+		}
+		log.info(">>>>>>>>>>> rpc provider auto profile, processors:{}, workerThreads:{}, corePoolSize:{}, maxPoolSize:{}",
+				processors, workerThreads, corePoolSize, maxPoolSize);
 	}
 
 	public void  stop() throws Exception {
+		// stop local invoke
+		updateLocalProvider(this, false);
+		if (localInvokePool != null) {
+			localInvokePool.shutdownNow();
+			localInvokePool = null;
+		}
+
 		// stop server
 		serverInstance.stop();
 	}
 
 
+	// ---------------------- local invoke ----------------------
+
+	/**
+	 * started providers of this jvm, for in-jvm consumers (LocalClient); by identity, not by equals (@Data, mutable fields);
+	 * lookup by snapshot, no lock
+	 */
+	private static final Set<RpcProviderFactory> localProviderSet = Collections.newSetFromMap(new IdentityHashMap<RpcProviderFactory, Boolean>());
+	private static volatile RpcProviderFactory[] localProviders = new RpcProviderFactory[0];
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude
+	private volatile ThreadPoolExecutor localInvokePool;
+
+	private static void updateLocalProvider(RpcProviderFactory providerFactory, boolean started) {
+		synchronized (localProviderSet) {
+			if (started) {
+				localProviderSet.add(providerFactory);
+			} else {
+				localProviderSet.remove(providerFactory);
+			}
+			localProviders = localProviderSet.toArray(new RpcProviderFactory[localProviderSet.size()]);
+		}
+	}
+
+	/**
+	 * match started provider of this jvm by serviceKey, null if not exists
+	 */
+	public static RpcProviderFactory getLocalProvider(String serviceKey) {
+		for (RpcProviderFactory providerFactory : localProviders) {
+			if (providerFactory.getServiceData().containsKey(serviceKey)) {
+				return providerFactory;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * invoke for in-jvm consumer, on a business pool sized like the server one (created on first use); throw RejectedExecutionException if exhausted
+	 */
+	public void executeLocalInvoke(Runnable runnable) {
+		ThreadPoolExecutor pool = localInvokePool;
+		if (pool == null) {
+			synchronized (this) {
+				pool = localInvokePool;
+				if (pool == null) {
+					pool = ThreadPoolUtil.makeServerThreadPool("LocalClient", corePoolSize, maxPoolSize, queueType, queueCapacity);
+					localInvokePool = pool;
+				}
+			}
+		}
+		pool.execute(runnable);
+	}
+
+
 	// ---------------------- server invoke ----------------------
 
 	/**
@@ -141,15 +292,69 @@ public class RpcProviderFactory {
 		return serviceKey;
 	}
 
+	/**
+	 * make method key, "serviceKey:methodName(parameterType,...)"
+	 */
+	public static String makeMethodKey(String serviceKey, String methodName, Class<?>[] parameterTypes){
+		StringBuilder methodKey = new StringBuilder(serviceKey).append(':').append(methodName).append('(');
+		if (parameterTypes != null) {
+			for (int i = 0; i < parameterTypes.length; i++) {
+				if (i > 0) {
+					methodKey.append(',');
+				}
+				methodKey.append(parameterTypes[i].getName());
+			}
+		}
+		return methodKey.append(')').toString();
+	}
+
 	/**
 	 * add service
 	 */
 	public void addService(String iface, String version, Object serviceBean){
 		String serviceKey = makeServiceKey(iface, version);
 		serviceData.put(serviceKey, serviceBean);
+		addServiceMethods(serviceKey, serviceBean);
 		log.info(">>>>>>>>>>> rpc, provider factory add service success. serviceKey = {}, serviceBean = {}", serviceKey, serviceBean.getClass());
 	}
 
+
+	// ---------------------- method table ----------------------
+
+	/**
+	 * method table, published to client by handshake: methodKey → method id (index+1 of methodArray)
+	 */
+	private final Map<String, Integer> methodTable = new ConcurrentHashMap<String, Integer>();
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude
+	private volatile RpcServiceMethod[] methodArray = new RpcServiceMethod[0];
+
+	private synchronized void addServiceMethods(String serviceKey, Object serviceBean) {
+		List<RpcServiceMethod> methodList = new ArrayList<RpcServiceMethod>(Arrays.asList(methodArray));
+		for (Method method : serviceBean.getClass().getMethods()) {
+			if (method.getDeclaringClass() == Object.class) {
+				continue;
+			}
+			String methodKey = makeMethodKey(serviceKey, method.getName(), method.getParameterTypes());
+			Integer methodId = methodTable.get(methodKey);
+			if (methodId != null) {
+				methodList.set(methodId - 1, new RpcServiceMethod(methodId, serviceKey, serviceBean, method));	// service replaced, keep id
+				continue;
+			}
+			methodId = methodList.size() + 1;
+			methodList.add(new RpcServiceMethod(methodId, serviceKey, serviceBean, method));
+			methodTable.put(methodKey, methodId);
+		}
+		methodArray = methodList.toArray(new RpcServiceMethod[methodList.size()]);
+	}
+
+	/**
+	 * match method by id, null if not exists
+	 */
+	public RpcServiceMethod getServiceMethod(int methodId) {
+		RpcServiceMethod[] methods = methodArray;
+		return (methodId > 0 && methodId <= methods.length) ? methods[methodId - 1] : null;
+	}
+
 	/**
 	 * invoke service
 	 */
@@ -159,9 +364,36 @@ public class RpcProviderFactory {
 		RpcResponse xxlRpcResponse = new RpcResponse();
 		xxlRpcResponse.setRequestId(xxlRpcRequest.getRequestId());
 
-		// match service bean
-		String serviceKey = makeServiceKey(xxlRpcRequest.getClassName(), xxlRpcRequest.getVersion());
-		Object serviceBean = serviceData.get(serviceKey);
+		// valid access token, before anything published (handshake)
+		if (accessToken!=null && accessToken.trim().length()>0 && !accessToken.trim().equals(xxlRpcRequest.getAccessToken())) {
+			xxlRpcResponse.setErrorMsg("The access token[" + xxlRpcRequest.getAccessToken() + "] is wrong.");
+			return xxlRpcResponse;
+		}
+
+		// handshake, publish method table
+		if (Handshake.isHandshake(xxlRpcRequest)) {
+			xxlRpcResponse.setResult(new HashMap<String, Integer>(methodTable));
+			return xxlRpcResponse;
+		}
+
+		// match service bean, by method id or serviceKey
+		RpcServiceMethod serviceMethod;
+		String serviceKey;
+		Object serviceBean;
+		if (xxlRpcRequest.getMethodId() > 0) {
+			serviceMethod = getServiceMethod(xxlRpcRequest.getMethodId());
+			if (serviceMethod == null) {
+				xxlRpcResponse.setErrorMsg("The methodId["+ xxlRpcRequest.getMethodId() +"] not found.");
+				return xxlRpcResponse;
+			}
+			serviceKey = serviceMethod.getServiceKey();
+			serviceBean = serviceMethod.getServiceBean();
+		} else {
+			serviceKey = makeServiceKey(xxlRpcRequest.getClassName(), xxlRpcRequest.getVersion());
+			serviceBean = serviceData.get(serviceKey);
+			Integer methodId = methodTable.get(makeMethodKey(serviceKey, xxlRpcRequest.getMethodName(), xxlRpcRequest.getParameterTypes()));
+			serviceMethod = methodId!=null?getServiceMethod(methodId):null;
+		}
 
 		// valid
 		if (serviceBean == null) {
@@ -173,25 +405,33 @@ public class RpcProviderFactory {
 			xxlRpcResponse.setErrorMsg("The timestamp difference between admin and executor exceeds the limit.");
 			return xxlRpcResponse;
 		}
-		if (accessToken!=null && accessToken.trim().length()>0 && !accessToken.trim().equals(xxlRpcRequest.getAccessToken())) {
-			xxlRpcResponse.setErrorMsg("The access token[" + xxlRpcRequest.getAccessToken() + "] is wrong.");
-			return xxlRpcResponse;
-		}
 
 		try {
 			// invoke
-			Class<?> serviceClass = serviceBean.getClass();
-			String methodName = xxlRpcRequest.getMethodName();
-			Class<?>[] parameterTypes = xxlRpcRequest.getParameterTypes();
 			Object[] parameters = xxlRpcRequest.getParameters();
 
-            Method method = serviceClass.getMethod(methodName, parameterTypes);
-            method.setAccessible(true);
-			Object result = method.invoke(serviceBean, parameters);
+			Object result;
+			if (serviceMethod != null) {
+				// cached invoker, resolved when service added
+				result = serviceMethod.invoke(parameters);
+			} else {
+				Class<?> serviceClass = serviceBean.getClass();
+				String methodName = xxlRpcRequest.getMethodName();
+				Class<?>[] parameterTypes = xxlRpcRequest.getParameterTypes();
+
+				Method method = serviceClass.getMethod(methodName, parameterTypes);
+				method.setAccessible(true);
+				result = method.invoke(serviceBean, parameters);
+			}
 
-			/*FastClass serviceFastClass = FastClass.create(serviceClass);
-			FastMethod serviceFastMethod = serviceFastClass.getMethod(methodName, parameterTypes);
-			Object result = serviceFastMethod.invoke(serviceBean, parameters);*/
+			// CompletableFuture / CompletionStage, response by its value
+			if (result instanceof CompletionStage) {
+				try {
+					result = ((CompletionStage<?>) result).toCompletableFuture().get();
+				} catch (ExecutionException e) {
+					throw e.getCause() != null ? e.getCause() : e;
+				}
+			}
 
 			xxlRpcResponse.setResult(result);
 		} catch (Throwable t) {
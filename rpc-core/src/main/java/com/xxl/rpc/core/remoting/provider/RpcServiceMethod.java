@@ -0,0 +1,97 @@
+package com.xxl.rpc.core.remoting.provider;
+
+import com.xxl.rpc.core.util.RpcException;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * provider method table entry, resolved once when service added
+ *
+ *      invoker: MethodHandle bound to service bean, spread to "(Object[])Object", no lookup/access check per call;
+ *      primitive params: the invoker only unboxes the exact wrapper; other arguments (e.g. Integer for long, null)
+ *                        go through Method.invoke, which applies unboxing + widening as before;
+ */
+@Getter
+public class RpcServiceMethod {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private final int methodId;
+    private final String serviceKey;
+    private final Object serviceBean;
+    private final Method method;
+    private final MethodHandle invoker;
+    @Getter(AccessLevel.NONE)
+    private final Class<?>[] primitiveWrappers;     // wrapper of each primitive param, null for reference param
+    @Getter(AccessLevel.NONE)
+    private final boolean hasPrimitive;
+
+    public RpcServiceMethod(int methodId, String serviceKey, Object serviceBean, Method method) {
+        this.methodId = methodId;
+        this.serviceKey = serviceKey;
+        this.serviceBean = serviceBean;
+        this.method = method;
+
+        try {
+            method.setAccessible(true);
+            this.invoker = MethodHandles.lookup().unreflect(method)
+                    .bindTo(serviceBean)
+                    .asSpreader(Object[].class, method.getParameterTypes().length)
+                    .asType(INVOKER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new RpcException("rpc provider method invoker init fail, method = " + method, e);
+        }
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        this.primitiveWrappers = new Class<?>[parameterTypes.length];
+        boolean hasPrimitive = false;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (parameterTypes[i].isPrimitive()) {
+                primitiveWrappers[i] = MethodType.methodType(parameterTypes[i]).wrap().returnType();
+                hasPrimitive = true;
+            }
+        }
+        this.hasPrimitive = hasPrimitive;
+    }
+
+    /**
+     * invoke service method
+     */
+    public Object invoke(Object[] parameters) throws Throwable {
+        if (hasPrimitive && !exactPrimitives(parameters)) {
+            return invokeReflect(parameters);
+        }
+        return (Object) invoker.invokeExact(parameters);
+    }
+
+    /**
+     * whether every primitive param gets its exact wrapper, the only case the invoker converts like Method.invoke
+     */
+    private boolean exactPrimitives(Object[] parameters) {
+        if (parameters == null || parameters.length != primitiveWrappers.length) {
+            return false;
+        }
+        for (int i = 0; i < primitiveWrappers.length; i++) {
+            if (primitiveWrappers[i] != null
+                    && (parameters[i] == null || parameters[i].getClass() != primitiveWrappers[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Object invokeReflect(Object[] parameters) throws Throwable {
+        try {
+            return method.invoke(serviceBean, parameters);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() != null ? e.getCause() : e;     // same as invoker, service exception thrown as is
+        }
+    }
+
+}
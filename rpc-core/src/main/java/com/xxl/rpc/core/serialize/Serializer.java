@@ -1,5 +1,7 @@
 package com.xxl.rpc.core.serialize;
 
+import io.netty.buffer.ByteBuf;
+
 /**
  * serializer
  *
@@ -14,4 +16,35 @@ public abstract class Serializer {
 	public abstract <T> byte[] serialize(T obj);
 	public abstract <T> Object deserialize(byte[] bytes, Class<T> clazz);
 
+	/**
+	 * serializer id, written in frame header to detect mismatched serializer of two ends; 0 = unknown, not checked
+	 */
+	public byte getSerializerId() {
+		return 0;
+	}
+
+	/**
+	 * instance bound to one connection, used by both encoder and decoder of that connection in wire order;
+	 * default stateless and shared, override to keep per-connection state (e.g. class descriptor dictionary)
+	 */
+	public Serializer forConnection() {
+		return this;
+	}
+
+	/**
+	 * serialize into the writable end of "out"; default copy from byte[], override to write directly
+	 */
+	public <T> void serialize(T obj, ByteBuf out) {
+		out.writeBytes(serialize(obj));
+	}
+
+	/**
+	 * deserialize from all readable bytes of "in"; default copy to byte[], override to read directly
+	 */
+	public <T> Object deserialize(ByteBuf in, Class<T> clazz) {
+		byte[] bytes = new byte[in.readableBytes()];
+		in.readBytes(bytes);
+		return deserialize(bytes, clazz);
+	}
+
 }
@@ -0,0 +1,714 @@
+package com.xxl.rpc.core.serialize.impl;
+
+import com.xxl.rpc.core.remoting.net.params.RpcRequest;
+import com.xxl.rpc.core.remoting.net.params.RpcResponse;
+import com.xxl.rpc.core.serialize.Serializer;
+import com.xxl.rpc.core.util.ClassUtil;
+import com.xxl.rpc.core.util.RpcException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * compact binary serializer
+ *
+ * 		Tips：RpcRequest/RpcResponse 字段直接编码，不写类描述；长度/整数使用 varint，字符串使用 UTF-8；
+ * 		Tips：其他值以 "tag + data" 方式编码；DTO 按字段名排序后逐个编码，字段访问器按 Class 解析一次后缓存；
+ * 		Tips：同一消息内重复出现的类名只写一次，之后以下标引用；仅 Serializable 对象按字段编码，无无参构造或含 final 字段的对象降级为 Java 序列化；
+ * 		Tips：ArrayList/HashSet/LinkedHashSet/HashMap/LinkedHashMap 按元素编码，其他集合类型（TreeMap、EnumMap 等）降级为 Java 序列化以保留类型；
+ */
+public class CompactSerializer extends Serializer {
+
+    // ---------------------- tag ----------------------
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte INT = 5;
+    private static final byte LONG = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DOUBLE = 8;
+    private static final byte CHAR = 9;
+    private static final byte STRING = 10;
+    private static final byte BYTES = 11;
+    private static final byte CLASS = 12;
+    private static final byte ARRAY = 13;
+    private static final byte LIST = 14;
+    private static final byte SET = 15;
+    private static final byte MAP = 16;
+    private static final byte ENUM = 17;
+    private static final byte DATE = 18;
+    private static final byte BEAN = 19;
+    private static final byte JAVA = 20;
+
+    private static final byte REQUEST = 30;
+    private static final byte RESPONSE = 31;
+
+    private static final int MAX_DEPTH = 64;
+
+    public static final byte SERIALIZER_ID = 3;
+
+    @Override
+    public byte getSerializerId() {
+        return SERIALIZER_ID;
+    }
+
+
+    // ---------------------- serialize ----------------------
+
+    @Override
+    public <T> byte[] serialize(T obj) {
+        ByteBuf out = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            new Writer(out).writeRoot(obj);
+            return ByteBufUtil.getBytes(out);
+        } finally {
+            out.release();
+        }
+    }
+
+    @Override
+    public <T> Object deserialize(byte[] bytes, Class<T> clazz) {
+        return new Reader(Unpooled.wrappedBuffer(bytes)).readRoot();
+    }
+
+    @Override
+    public <T> void serialize(T obj, ByteBuf out) {
+        new Writer(out).writeRoot(obj);
+    }
+
+    @Override
+    public <T> Object deserialize(ByteBuf in, Class<T> clazz) {
+        return new Reader(in).readRoot();
+    }
+
+
+    // ---------------------- writer ----------------------
+
+    private static class Writer {
+        private final ByteBuf out;
+        private Map<String, Integer> classNames;
+        private int depth;
+
+        private Writer(ByteBuf out) {
+            this.out = out;
+        }
+
+        private void writeRoot(Object obj) {
+            if (obj instanceof RpcRequest) {
+                RpcRequest request = (RpcRequest) obj;
+                out.writeByte(REQUEST);
+                writeVarLong(zigZag(request.getRequestId()));
+                writeVarLong(request.getCreateMillisTime());
+                writeString(request.getAccessToken());
+                writeVarInt(request.getMethodId());
+                writeString(request.getClassName());
+                writeString(request.getMethodName());
+                writeClasses(request.getParameterTypes());
+                writeValues(request.getParameters());
+                writeString(request.getVersion());
+            } else if (obj instanceof RpcResponse) {
+                RpcResponse response = (RpcResponse) obj;
+                out.writeByte(RESPONSE);
+                writeVarLong(zigZag(response.getRequestId()));
+                writeString(response.getErrorMsg());
+                writeValue(response.getResult());
+            } else {
+                writeValue(obj);
+            }
+        }
+
+        private void writeValue(Object value) {
+            if (value == null) {
+                out.writeByte(NULL);
+                return;
+            }
+            if (++depth > MAX_DEPTH) {
+                throw new RpcException("rpc compact serialize fail, object graph too deep (cyclic reference?).");
+            }
+            try {
+                writeValue0(value);
+            } finally {
+                depth--;
+            }
+        }
+
+        private void writeValue0(Object value) {
+            Class<?> type = value.getClass();
+            if (type == String.class) {
+                out.writeByte(STRING);
+                writeString((String) value);
+            } else if (type == Integer.class) {
+                out.writeByte(INT);
+                writeVarInt(zigZag((Integer) value));
+            } else if (type == Long.class) {
+                out.writeByte(LONG);
+                writeVarLong(zigZag((Long) value));
+            } else if (type == Boolean.class) {
+                out.writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (type == Double.class) {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (type == Float.class) {
+                out.writeByte(FLOAT);
+                out.writeFloat((Float) value);
+            } else if (type == Short.class) {
+                out.writeByte(SHORT);
+                out.writeShort((Short) value);
+            } else if (type == Byte.class) {
+                out.writeByte(BYTE);
+                out.writeByte((Byte) value);
+            } else if (type == Character.class) {
+                out.writeByte(CHAR);
+                out.writeChar((Character) value);
+            } else if (type == byte[].class) {
+                byte[] bytes = (byte[]) value;
+                out.writeByte(BYTES);
+                writeVarInt(bytes.length);
+                out.writeBytes(bytes);
+            } else if (value instanceof Class) {
+                out.writeByte(CLASS);
+                writeClassName(((Class<?>) value).getName());
+            } else if (type == Date.class) {
+                out.writeByte(DATE);
+                writeVarLong(((Date) value).getTime());
+            } else if (value instanceof Enum) {
+                out.writeByte(ENUM);
+                writeClassName(((Enum<?>) value).getDeclaringClass().getName());
+                writeString(((Enum<?>) value).name());
+            } else if (type.isArray() && !type.getComponentType().isPrimitive()) {
+                Object[] array = (Object[]) value;
+                out.writeByte(ARRAY);
+                writeClassName(type.getComponentType().getName());
+                writeVarInt(array.length);
+                for (Object item : array) {
+                    writeValue(item);
+                }
+            } else if (isTagged(type, value, List.class, ArrayList.class)) {
+                out.writeByte(LIST);
+                writeItems((Collection<?>) value);
+            } else if (isTagged(type, value, Set.class, HashSet.class, LinkedHashSet.class)) {
+                out.writeByte(SET);
+                writeItems((Collection<?>) value);
+            } else if (isTagged(type, value, Map.class, HashMap.class, LinkedHashMap.class)) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                out.writeByte(MAP);
+                writeVarInt(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writeValue(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            } else {
+                BeanCodec codec = BeanCodec.forClass(type);
+                if (codec != null) {
+                    out.writeByte(BEAN);
+                    writeClassName(type.getName());
+                    codec.write(this, value);
+                } else {
+                    writeJava(value);
+                }
+            }
+        }
+
+        /**
+         * collection by tag, read back as ArrayList / LinkedHashSet / LinkedHashMap: only for these exact types, so others
+         * (TreeMap comparator, EnumMap, LinkedList, ConcurrentHashMap ...) keep their type by java serialize; a collection
+         * not serializable (e.g. view) still by tag, no other way to send it
+         */
+        private static boolean isTagged(Class<?> type, Object value, Class<?> kind, Class<?>... exactTypes) {
+            if (!kind.isInstance(value)) {
+                return false;
+            }
+            for (Class<?> exactType : exactTypes) {
+                if (type == exactType) {
+                    return true;
+                }
+            }
+            return !(value instanceof Serializable);
+        }
+
+        private void writeItems(Collection<?> items) {
+            writeVarInt(items.size());
+            for (Object item : items) {
+                writeValue(item);
+            }
+        }
+
+        private void writeValues(Object[] values) {
+            if (values == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(values.length + 1);
+            for (Object value : values) {
+                writeValue(value);
+            }
+        }
+
+        private void writeClasses(Class<?>[] classes) {
+            if (classes == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(classes.length + 1);
+            for (Class<?> clazz : classes) {
+                writeClassName(clazz.getName());
+            }
+        }
+
+        private void writeJava(Object value) {
+            if (!(value instanceof Serializable)) {
+                throw new RpcException("rpc compact serialize fail, class[" + value.getClass().getName() + "] is not supported.");
+            }
+            out.writeByte(JAVA);
+            int lengthIndex = out.writerIndex();
+            out.writeInt(0);
+            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(new ByteBufOutputStream(out))) {
+                objectOutputStream.writeObject(value);
+            } catch (IOException e) {
+                throw new RpcException(e);
+            }
+            out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+        }
+
+        private void writeClassName(String className) {
+            if (classNames == null) {
+                classNames = new HashMap<>();
+            }
+            Integer index = classNames.get(className);
+            if (index != null) {
+                writeVarInt(index + 1);
+                return;
+            }
+            classNames.put(className, classNames.size());
+            writeVarInt(0);
+            writeString(className);
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(ByteBufUtil.utf8Bytes(value) + 1);
+            ByteBufUtil.writeUtf8(out, value);
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte(((int) value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        private static int zigZag(int value) {
+            return (value << 1) ^ (value >> 31);
+        }
+
+        private static long zigZag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+
+    // ---------------------- reader ----------------------
+
+    private static class Reader {
+        private final ByteBuf in;
+        private List<String> classNames;
+        private int depth;
+
+        private Reader(ByteBuf in) {
+            this.in = in;
+        }
+
+        private Object readRoot() {
+            byte tag = in.readByte();
+            if (tag == REQUEST) {
+                RpcRequest request = new RpcRequest();
+                request.setRequestId(readZigZagVarLong());
+                request.setCreateMillisTime(readVarLong());
+                request.setAccessToken(readString());
+                request.setMethodId(readVarInt());
+                request.setClassName(readString());
+                request.setMethodName(readString());
+                request.setParameterTypes(readClasses());
+                request.setParameters(readValues());
+                request.setVersion(readString());
+                return request;
+            } else if (tag == RESPONSE) {
+                RpcResponse response = new RpcResponse();
+                response.setRequestId(readZigZagVarLong());
+                response.setErrorMsg(readString());
+                response.setResult(readValue());
+                return response;
+            }
+            return readValue(tag);
+        }
+
+        private Object readValue() {
+            return readValue(in.readByte());
+        }
+
+        private Object readValue(byte tag) {
+            if (++depth > MAX_DEPTH) {
+                throw new RpcException("rpc compact deserialize fail, object graph too deep.");
+            }
+            try {
+                return readValue0(tag);
+            } finally {
+                depth--;
+            }
+        }
+
+        private Object readValue0(byte tag) {
+            switch (tag) {
+                case NULL:
+                    return null;
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case BYTE:
+                    return in.readByte();
+                case SHORT:
+                    return in.readShort();
+                case INT: {
+                    int value = readVarInt();
+                    return (value >>> 1) ^ -(value & 1);
+                }
+                case LONG:
+                    return readZigZagVarLong();
+                case FLOAT:
+                    return in.readFloat();
+                case DOUBLE:
+                    return in.readDouble();
+                case CHAR:
+                    return in.readChar();
+                case STRING:
+                    return readString();
+                case BYTES: {
+                    byte[] bytes = new byte[checkLength(readVarInt())];
+                    in.readBytes(bytes);
+                    return bytes;
+                }
+                case CLASS:
+                    return readClass();
+                case DATE:
+                    return new Date(readVarLong());
+                case ENUM:
+                    return readEnum();
+                case ARRAY: {
+                    Class<?> componentType = readClass();
+                    int length = checkLength(readVarInt());
+                    Object[] array = (Object[]) Array.newInstance(componentType, length);
+                    for (int i = 0; i < length; i++) {
+                        array[i] = readValue();
+                    }
+                    return array;
+                }
+                case LIST: {
+                    int size = checkLength(readVarInt());
+                    List<Object> list = new ArrayList<>();
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue());
+                    }
+                    return list;
+                }
+                case SET: {
+                    int size = checkLength(readVarInt());
+                    Set<Object> set = new LinkedHashSet<>();
+                    for (int i = 0; i < size; i++) {
+                        set.add(readValue());
+                    }
+                    return set;
+                }
+                case MAP: {
+                    int size = checkLength(readVarInt());
+                    Map<Object, Object> map = new LinkedHashMap<>();
+                    for (int i = 0; i < size; i++) {
+                        Object key = readValue();
+                        map.put(key, readValue());
+                    }
+                    return map;
+                }
+                case BEAN: {
+                    Class<?> type = readClass();
+                    BeanCodec codec = BeanCodec.forClass(type);
+                    if (codec == null) {
+                        throw new RpcException("rpc compact deserialize fail, class[" + type.getName() + "] is not supported.");
+                    }
+                    return codec.read(this);
+                }
+                case JAVA:
+                    return readJava();
+                default:
+                    throw new RpcException("rpc compact deserialize fail, unknown tag[" + tag + "].");
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Object readEnum() {
+            Class type = readClass();
+            return Enum.valueOf(type, readString());
+        }
+
+        private Object readJava() {
+            int length = checkLength(in.readInt());
+            ByteBuf slice = in.readSlice(length);
+            try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteBufInputStream(slice))) {
+                return objectInputStream.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                throw new RpcException(e);
+            }
+        }
+
+        private Object[] readValues() {
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            checkLength(length);
+            Object[] values = new Object[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = readValue();
+            }
+            return values;
+        }
+
+        private Class<?>[] readClasses() {
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            checkLength(length);
+            Class<?>[] classes = new Class<?>[length];
+            for (int i = 0; i < length; i++) {
+                classes[i] = readClass();
+            }
+            return classes;
+        }
+
+        private Class<?> readClass() {
+            return resolveClass(readClassName());
+        }
+
+        private String readClassName() {
+            if (classNames == null) {
+                classNames = new ArrayList<>();
+            }
+            int index = readVarInt();
+            if (index > 0) {
+                return classNames.get(index - 1);
+            }
+            String className = readString();
+            classNames.add(className);
+            return className;
+        }
+
+        private String readString() {
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            checkLength(length);
+            String value = in.toString(in.readerIndex(), length, CharsetUtil.UTF_8);
+            in.skipBytes(length);
+            return value;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = in.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new RpcException("rpc compact deserialize fail, malformed varint.");
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new RpcException("rpc compact deserialize fail, malformed varint.");
+        }
+
+        private long readZigZagVarLong() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * length or element count read from the wire, checked before allocating by it: every byte / element takes at least
+         * one byte of input, so a value over readable bytes is malformed (or hostile) and never allocated
+         */
+        private int checkLength(int length) {
+            if (length < 0 || length > in.readableBytes()) {
+                throw new RpcException("rpc compact deserialize fail, length[" + length + "] out of range, readable bytes[" + in.readableBytes() + "].");
+            }
+            return length;
+        }
+    }
+
+
+    // ---------------------- class ----------------------
+
+    private static final ConcurrentMap<String, Class<?>> classCache = new ConcurrentHashMap<>();
+
+    private static Class<?> resolveClass(String className) {
+        Class<?> clazz = classCache.get(className);
+        if (clazz == null) {
+            try {
+                clazz = ClassUtil.resolveClass(className);
+            } catch (ClassNotFoundException e) {
+                throw new RpcException(e);
+            }
+            classCache.putIfAbsent(className, clazz);
+        }
+        return clazz;
+    }
+
+
+    // ---------------------- bean ----------------------
+
+    /**
+     * field codec of a DTO class, resolved once per class and then reused for every message
+     */
+    private static class BeanCodec {
+
+        private static final BeanCodec UNSUPPORTED = new BeanCodec(null, new MethodHandle[0], new MethodHandle[0]);
+        private static final ConcurrentMap<Class<?>, BeanCodec> codecCache = new ConcurrentHashMap<>();
+
+        private static BeanCodec forClass(Class<?> type) {
+            BeanCodec codec = codecCache.get(type);
+            if (codec == null) {
+                codec = build(type);
+                codecCache.putIfAbsent(type, codec);
+            }
+            return codec != UNSUPPORTED ? codec : null;
+        }
+
+        private static BeanCodec build(Class<?> type) {
+            // Serializable only (both ends): class named on the wire never instantiated unless java serialize would too
+            if (type.isInterface() || type.isArray() || Modifier.isAbstract(type.getModifiers())
+                    || type.getName().startsWith("java.") || !Serializable.class.isAssignableFrom(type)) {
+                return UNSUPPORTED;
+            }
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+
+                List<Field> fields = new ArrayList<>();
+                for (Class<?> item = type; item != null && item != Object.class; item = item.getSuperclass()) {
+                    for (Field field : item.getDeclaredFields()) {
+                        int modifiers = field.getModifiers();
+                        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+                            continue;
+                        }
+                        if (Modifier.isFinal(modifiers)) {
+                            return UNSUPPORTED;     // not settable after construct, java serialize instead of losing it
+                        }
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+                // stable order on both ends, independent of reflection order
+                Collections.sort(fields, new Comparator<Field>() {
+                    @Override
+                    public int compare(Field o1, Field o2) {
+                        int result = o1.getName().compareTo(o2.getName());
+                        return result != 0 ? result : o1.getDeclaringClass().getName().compareTo(o2.getDeclaringClass().getName());
+                    }
+                });
+
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodHandle[] getters = new MethodHandle[fields.size()];
+                MethodHandle[] setters = new MethodHandle[fields.size()];
+                for (int i = 0; i < fields.size(); i++) {
+                    Field field = fields.get(i);
+                    getters[i] = lookup.unreflectGetter(field);
+                    setters[i] = lookup.unreflectSetter(field);
+                }
+                return new BeanCodec(lookup.unreflectConstructor(constructor), getters, setters);
+            } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+                return UNSUPPORTED;
+            }
+        }
+
+        private final MethodHandle constructor;
+        private final MethodHandle[] getters;
+        private final MethodHandle[] setters;
+
+        private BeanCodec(MethodHandle constructor, MethodHandle[] getters, MethodHandle[] setters) {
+            this.constructor = constructor;
+            this.getters = getters;
+            this.setters = setters;
+        }
+
+        private void write(Writer writer, Object bean) {
+            writer.writeVarInt(getters.length);
+            try {
+                for (MethodHandle getter : getters) {
+                    writer.writeValue(getter.invoke(bean));
+                }
+            } catch (RpcException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RpcException(e);
+            }
+        }
+
+        private Object read(Reader reader) {
+            int fieldCount = reader.readVarInt();
+            if (fieldCount != getters.length) {
+                throw new RpcException("rpc compact deserialize fail, field count mismatch, class[" + constructor.type().returnType().getName() + "].");
+            }
+            try {
+                Object bean = constructor.invoke();
+                for (MethodHandle setter : setters) {
+                    setter.invoke(bean, reader.readValue());
+                }
+                return bean;
+            } catch (RpcException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RpcException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.xxl.rpc.core.serialize.impl;
+
+import com.xxl.rpc.core.serialize.Serializer;
+import com.xxl.rpc.core.util.RpcException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Java序列化 + 连接级类描述字典
+ *
+ * 		Tips：同一连接上每个类描述（ObjectStreamClass）只完整传输一次，之后以整数句柄引用；发送端与接收端各自维护一份字典，依赖连接内消息有序；
+ * 		Tips：未绑定连接时（如 netty_http）与 JavaSerializer 一致；消息编码失败时本次新增的描述不入字典，解码失败时连接应关闭；
+ */
+public class JavaConnectionSerializer extends JavaSerializer {
+
+    private static final byte DESC_NEW = 0;
+    private static final byte DESC_REF = 1;
+
+    // connection dictionary, null if not bound to connection
+    private final Map<ObjectStreamClass, Integer> writeDescriptors;
+    private final List<ObjectStreamClass> readDescriptors;
+
+    public JavaConnectionSerializer() {
+        this(false);
+    }
+    private JavaConnectionSerializer(boolean connection) {
+        this.writeDescriptors = connection ? new IdentityHashMap<ObjectStreamClass, Integer>() : null;
+        this.readDescriptors = connection ? new ArrayList<ObjectStreamClass>() : null;
+    }
+
+    public static final byte SERIALIZER_ID = 2;
+
+    @Override
+    public byte getSerializerId() {
+        return writeDescriptors != null ? SERIALIZER_ID : JavaSerializer.SERIALIZER_ID;     // same as JavaSerializer if not bound
+    }
+
+    @Override
+    public Serializer forConnection() {
+        return new JavaConnectionSerializer(true);
+    }
+
+
+    @Override
+    public <T> void serialize(T obj, ByteBuf out) {
+        if (writeDescriptors == null) {
+            super.serialize(obj, out);
+            return;
+        }
+        DictObjectOutputStream objectOutputStream = null;
+        try {
+            objectOutputStream = new DictObjectOutputStream(new ByteBufOutputStream(out));
+            objectOutputStream.writeObject(obj);
+            objectOutputStream.flush();
+        } catch (IOException e) {
+            throw new RpcException(e);
+        }
+        // commit only when message encoded completely
+        for (ObjectStreamClass desc : objectOutputStream.newDescriptors) {
+            writeDescriptors.put(desc, writeDescriptors.size());
+        }
+    }
+
+    @Override
+    public <T> Object deserialize(ByteBuf in, Class<T> clazz) {
+        if (readDescriptors == null) {
+            return super.deserialize(in, clazz);
+        }
+        try (DictObjectInputStream objectInputStream = new DictObjectInputStream(new ByteBufInputStream(in))) {
+            return objectInputStream.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RpcException(e);
+        }
+    }
+
+
+    // ---------------------- stream ----------------------
+
+    private class DictObjectOutputStream extends ObjectOutputStream {
+        private final List<ObjectStreamClass> newDescriptors = new ArrayList<>(2);
+
+        private DictObjectOutputStream(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+            Integer handle = writeDescriptors.get(desc);
+            if (handle != null) {
+                writeByte(DESC_REF);
+                writeInt(handle);
+                return;
+            }
+            writeByte(DESC_NEW);
+            super.writeClassDescriptor(desc);
+            newDescriptors.add(desc);
+        }
+    }
+
+    private class DictObjectInputStream extends ObjectInputStream {
+
+        private DictObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            byte type = readByte();
+            if (type == DESC_REF) {
+                int handle = readInt();
+                if (handle < 0 || handle >= readDescriptors.size()) {
+                    throw new InvalidClassException("rpc, class descriptor handle[" + handle + "] not found, connection dictionary out of sync.");
+                }
+                return readDescriptors.get(handle);
+            }
+            ObjectStreamClass desc = super.readClassDescriptor();
+            readDescriptors.add(desc);
+            return desc;
+        }
+    }
+
+}
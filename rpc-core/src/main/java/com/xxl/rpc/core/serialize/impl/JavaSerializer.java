@@ -3,6 +3,9 @@ package com.xxl.rpc.core.serialize.impl;
 
 import com.xxl.rpc.core.serialize.Serializer;
 import com.xxl.rpc.core.util.RpcException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import lombok.val;
 
 import java.io.*;
@@ -12,6 +15,14 @@ import java.io.*;
  */
 public class JavaSerializer extends Serializer {
 
+    public static final byte SERIALIZER_ID = 1;
+
+    @Override
+    public byte getSerializerId() {
+        return SERIALIZER_ID;
+    }
+
+
     @Override
     public <T> byte[] serialize(T obj) {
         try (
@@ -40,4 +51,24 @@ public class JavaSerializer extends Serializer {
         }
     }
 
+
+    @Override
+    public <T> void serialize(T obj, ByteBuf out) {
+        try (val objectOutputStream = new ObjectOutputStream(new ByteBufOutputStream(out))) {
+            objectOutputStream.writeObject(obj);
+        } catch (IOException e) {
+            throw new RpcException(e);
+        }
+    }
+
+
+    @Override
+    public <T> Object deserialize(ByteBuf in, Class<T> clazz) {
+        try (val objectInputStream = new ObjectInputStream(new ByteBufInputStream(in))) {
+            return objectInputStream.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RpcException(e);
+        }
+    }
+
 }
@@ -0,0 +1,84 @@
+package com.xxl.rpc.core.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * cgroup util, cpu quota of container
+ *
+ *      cgroup v2: /sys/fs/cgroup/cpu.max, "quota period" or "max period";
+ *      cgroup v1: /sys/fs/cgroup/cpu/cpu.cfs_quota_us (-1 = unlimited) + cpu.cfs_period_us;
+ */
+public class CgroupUtil {
+    private static Logger logger = LoggerFactory.getLogger(CgroupUtil.class);
+
+    private static final String CGROUP_V2_CPU_MAX = "/sys/fs/cgroup/cpu.max";
+    private static final String[] CGROUP_V1_CPU_DIRS = {"/sys/fs/cgroup/cpu", "/sys/fs/cgroup/cpu,cpuacct", "/sys/fs/cgroup/cpuacct,cpu"};
+
+    private static volatile int availableProcessors = 0;
+
+    /**
+     * available processors, limited by cgroup cpu quota (rounded up), never more than jvm available processors
+     */
+    public static int availableProcessors() {
+        if (availableProcessors == 0) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            double quota = cpuQuota();
+            if (quota > 0) {
+                processors = Math.max(1, Math.min(processors, (int) Math.ceil(quota)));
+            }
+            availableProcessors = processors;
+        }
+        return availableProcessors;
+    }
+
+    /**
+     * cpu quota in cores, -1 if unlimited or unknown
+     */
+    public static double cpuQuota() {
+        try {
+            // v2
+            String cpuMax = read(CGROUP_V2_CPU_MAX);
+            if (cpuMax != null) {
+                String[] items = cpuMax.split("\\s+");
+                if (items.length == 2 && !"max".equals(items[0])) {
+                    return quota(Long.parseLong(items[0]), Long.parseLong(items[1]));
+                }
+                return -1;
+            }
+
+            // v1
+            for (String dir : CGROUP_V1_CPU_DIRS) {
+                String quota = read(dir + "/cpu.cfs_quota_us");
+                String period = read(dir + "/cpu.cfs_period_us");
+                if (quota != null && period != null) {
+                    return quota(Long.parseLong(quota), Long.parseLong(period));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn(">>>>>>>>>>> rpc, read cgroup cpu quota fail.", e);
+        }
+        return -1;
+    }
+
+    private static double quota(long quota, long period) {
+        if (quota <= 0 || period <= 0) {
+            return -1;
+        }
+        return (double) quota / period;
+    }
+
+    private static String read(String path) throws IOException {
+        File file = new File(path);
+        if (!file.isFile() || !file.canRead()) {
+            return null;
+        }
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+    }
+
+}
@@ -190,7 +190,14 @@ public class IpUtil {
         return ip.concat(":").concat(String.valueOf(port));
     }
 
+    /**
+     * parse "ip:port", or "unix:/path" (unix domain socket, host = socket path, port = -1)
+     */
     public static Object[] parseIpPort(String address){
+        if (isUnixAddress(address)) {
+            return new Object[]{getUnixPath(address), -1};
+        }
+
         String[] array = address.split(":");
 
         String host = array[0];
@@ -200,4 +207,28 @@ public class IpUtil {
     }
 
 
+    // ---------------------- unix domain socket ----------------------
+
+    public static final String UNIX_ADDRESS_PREFIX = "unix:";
+
+    /**
+     * "unix:/path" or "unix:///path"
+     */
+    public static boolean isUnixAddress(String address){
+        return address!=null && address.startsWith(UNIX_ADDRESS_PREFIX);
+    }
+
+    public static String getUnixPath(String address){
+        String path = address.substring(UNIX_ADDRESS_PREFIX.length());
+        if (path.startsWith("//")) {
+            path = path.substring(2);
+        }
+        return path;
+    }
+
+    public static String getUnixAddress(String path){
+        return UNIX_ADDRESS_PREFIX.concat(path);
+    }
+
+
 }
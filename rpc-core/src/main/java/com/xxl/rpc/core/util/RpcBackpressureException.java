@@ -0,0 +1,16 @@
+package com.xxl.rpc.core.util;
+
+/**
+ * request rejected by backpressure, channel not writable (outbound buffer over high water mark)
+ *
+ *      request not sent, safe to retry later or on another provider
+ */
+public class RpcBackpressureException extends RpcException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RpcBackpressureException(String msg) {
+        super(msg);
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.xxl.rpc.core.util;
+
+/**
+ * long → object map, striped locks + open addressing (linear probing, backward-shift delete)
+ *
+ *      no boxing and no entry object per mapping; a stripe is locked only by callers hashing to it;
+ */
+public class StripedLongMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    public StripedLongMap() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public StripedLongMap(int stripeCount) {
+        int count = 1;
+        while (count < stripeCount) {
+            count <<= 1;
+        }
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = count - 1;
+    }
+
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    private Stripe stripe(long hash) {
+        return stripes[(int) (hash >>> 40) & stripeMask];
+    }
+
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long hash = mix(key);
+        return value(stripe(hash).put(key, (int) hash, value));
+    }
+
+    public V get(long key) {
+        long hash = mix(key);
+        return value(stripe(hash).get(key, (int) hash));
+    }
+
+    public V remove(long key) {
+        long hash = mix(key);
+        return value(stripe(hash).remove(key, (int) hash));
+    }
+
+    @SuppressWarnings("unchecked")      // stripes only hold values added by put(long, V)
+    private static <V> V value(Object value) {
+        return (V) value;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;        // approximate, no lock
+        }
+        return size;
+    }
+
+
+    // ---------------------- stripe ----------------------
+
+    private static final class Stripe {
+        private long[] keys = new long[MIN_CAPACITY];
+        private Object[] values = new Object[MIN_CAPACITY];      // null = empty slot
+        private volatile int size;
+
+        synchronized Object put(long key, int hash, Object value) {
+            int mask = keys.length - 1;
+            int index = hash & mask;
+            while (values[index] != null) {
+                if (keys[index] == key) {
+                    Object old = values[index];
+                    values[index] = value;
+                    return old;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = value;
+            size = size + 1;
+            if (size > (keys.length >> 1) + (keys.length >> 2)) {
+                resize(keys.length << 1);
+            }
+            return null;
+        }
+
+        synchronized Object get(long key, int hash) {
+            int mask = keys.length - 1;
+            int index = hash & mask;
+            Object value;
+            while ((value = values[index]) != null) {
+                if (keys[index] == key) {
+                    return value;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        synchronized Object remove(long key, int hash) {
+            int mask = keys.length - 1;
+            int index = hash & mask;
+            Object value;
+            while ((value = values[index]) != null) {
+                if (keys[index] == key) {
+                    shiftBackward(index, mask);
+                    size = size - 1;
+                    if (keys.length > MIN_CAPACITY && size < (keys.length >> 3)) {
+                        resize(keys.length >> 1);
+                    }
+                    return value;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * close the gap at "free", move later entries of the probe chain back, no tombstone
+         */
+        private void shiftBackward(int free, int mask) {
+            int index = free;
+            while (true) {
+                index = (index + 1) & mask;
+                if (values[index] == null) {
+                    break;
+                }
+                int home = (int) mix(keys[index]) & mask;
+                // move if home slot is not in the cyclic range (free, index]
+                if (((index - home) & mask) >= ((index - free) & mask)) {
+                    keys[free] = keys[index];
+                    values[free] = values[index];
+                    free = index;
+                }
+            }
+            values[free] = null;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[capacity];
+            values = new Object[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int index = (int) mix(oldKeys[i]) & mask;
+                    while (values[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+    }
+
+}
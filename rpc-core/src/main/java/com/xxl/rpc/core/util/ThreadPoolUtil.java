@@ -8,7 +8,31 @@ import java.util.concurrent.*;
 public class ThreadPoolUtil {
 
     private static final long DEFAULT_KEEP_ALIVE_TIME = 60L;
-    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    /**
+     * queue type of server thread pool
+     *
+     *      LINKED: LinkedBlockingQueue, bounded by capacity;
+     *      ARRAY: ArrayBlockingQueue, bounded by capacity, preallocated;
+     *      SYNCHRONOUS: SynchronousQueue, no queueing, grow to maxPoolSize then reject;
+     */
+    public enum QueueType {
+        LINKED,
+        ARRAY,
+        SYNCHRONOUS;
+
+        public BlockingQueue<Runnable> newQueue(int capacity) {
+            switch (this) {
+                case ARRAY:
+                    return new ArrayBlockingQueue<Runnable>(capacity);
+                case SYNCHRONOUS:
+                    return new SynchronousQueue<Runnable>();
+                default:
+                    return new LinkedBlockingQueue<Runnable>(capacity);
+            }
+        }
+    }
 
     /**
      * make server thread pool
@@ -17,12 +41,24 @@ public class ThreadPoolUtil {
      * @return
      */
     public static ThreadPoolExecutor makeServerThreadPool(final String serverType, int corePoolSize, int maxPoolSize) {
+        return makeServerThreadPool(serverType, corePoolSize, maxPoolSize, QueueType.LINKED, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * make server thread pool
+     *
+     * @param serverType
+     * @param queueType
+     * @param queueCapacity     ignored by SYNCHRONOUS
+     * @return
+     */
+    public static ThreadPoolExecutor makeServerThreadPool(final String serverType, int corePoolSize, int maxPoolSize, QueueType queueType, int queueCapacity) {
         ThreadPoolExecutor serverHandlerPool = new ThreadPoolExecutor(
                 corePoolSize,
                 maxPoolSize,
                 DEFAULT_KEEP_ALIVE_TIME,
                 TimeUnit.SECONDS,
-                new LinkedBlockingQueue<Runnable>(DEFAULT_QUEUE_CAPACITY),
+                queueType.newQueue(queueCapacity),
                 new ThreadFactory() {
                     @Override
                     public Thread newThread(Runnable r) {
@@ -0,0 +1,62 @@
+package com.xxl.rpc.core.test;
+
+import com.xxl.rpc.core.remoting.provider.RpcServiceMethod;
+
+import java.lang.reflect.Method;
+
+/**
+ * provider invoke benchmark: per-call reflection (old invokeService path) vs cached invoker
+ *
+ *      run as main, warmup rounds first; numbers are for comparison only, not a JMH report
+ */
+public class MethodInvokeBenchmark {
+
+    public interface DemoService {
+        String sayHi(String name, int age);
+    }
+    public static class DemoServiceImpl implements DemoService {
+        @Override
+        public String sayHi(String name, int age) {
+            return name;
+        }
+    }
+
+    private static final int WARMUP = 5;
+    private static final int ROUNDS = 5;
+    private static final int CALLS = 2000000;
+
+    public static void main(String[] args) throws Throwable {
+        Object serviceBean = new DemoServiceImpl();
+        Class<?>[] parameterTypes = new Class<?>[]{String.class, int.class};
+        Object[] parameters = new Object[]{"jack", 18};
+
+        RpcServiceMethod serviceMethod = new RpcServiceMethod(1, DemoService.class.getName(), serviceBean,
+                serviceBean.getClass().getMethod("sayHi", parameterTypes));
+
+        for (int round = 0; round < WARMUP + ROUNDS; round++) {
+            long blackhole = 0;
+
+            // reflection, per call
+            long start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                Method method = serviceBean.getClass().getMethod("sayHi", parameterTypes);
+                method.setAccessible(true);
+                blackhole += method.invoke(serviceBean, parameters).hashCode();
+            }
+            long reflectionCost = System.nanoTime() - start;
+
+            // cached invoker
+            start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                blackhole += serviceMethod.invoke(parameters).hashCode();
+            }
+            long invokerCost = System.nanoTime() - start;
+
+            if (round >= WARMUP) {
+                System.out.println(String.format("round %d: reflection %.1f ns/op, cached invoker %.1f ns/op (%d)",
+                        round - WARMUP, (double) reflectionCost / CALLS, (double) invokerCost / CALLS, blackhole));
+            }
+        }
+    }
+
+}
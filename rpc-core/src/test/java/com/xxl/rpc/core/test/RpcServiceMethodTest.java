@@ -0,0 +1,71 @@
+package com.xxl.rpc.core.test;
+
+import com.xxl.rpc.core.remoting.provider.RpcServiceMethod;
+
+/**
+ * provider invoker keeps Method.invoke argument conversion: exact wrapper, unboxing + widening, bad argument
+ *
+ *      run as main, throws on mismatch
+ */
+public class RpcServiceMethodTest {
+
+    public static class DemoServiceImpl {
+        public long plus(long a, int b) {
+            return a + b;
+        }
+        public double scale(double a, String name) {
+            return a * 2;
+        }
+        public String fail(int code) {
+            throw new IllegalStateException("fail " + code);
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        Object serviceBean = new DemoServiceImpl();
+        RpcServiceMethod plus = new RpcServiceMethod(1, "demo", serviceBean,
+                DemoServiceImpl.class.getMethod("plus", long.class, int.class));
+        RpcServiceMethod scale = new RpcServiceMethod(2, "demo", serviceBean,
+                DemoServiceImpl.class.getMethod("scale", double.class, String.class));
+        RpcServiceMethod fail = new RpcServiceMethod(3, "demo", serviceBean,
+                DemoServiceImpl.class.getMethod("fail", int.class));
+
+        // exact wrapper
+        assertEquals(3L, plus.invoke(new Object[]{1L, 2}));
+
+        // unboxing + widening: Integer -> long, Short -> int, Float -> double
+        assertEquals(3L, plus.invoke(new Object[]{1, (short) 2}));
+        assertEquals(3.0d, scale.invoke(new Object[]{1.5f, "jack"}));
+        assertEquals(4.0d, scale.invoke(new Object[]{2, null}));
+
+        // narrowing / null for primitive, rejected as by Method.invoke
+        assertThrows(IllegalArgumentException.class, plus, new Object[]{1L, 2L});
+        assertThrows(IllegalArgumentException.class, plus, new Object[]{null, 2});
+        assertThrows(IllegalArgumentException.class, plus, new Object[]{1L});
+
+        // service exception thrown as is, on both paths
+        assertThrows(IllegalStateException.class, fail, new Object[]{1});
+        assertThrows(IllegalStateException.class, fail, new Object[]{(byte) 1});
+
+        System.out.println("RpcServiceMethodTest OK");
+    }
+
+    private static void assertEquals(Object expected, Object actual) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError("expected " + expected + ", but was " + actual);
+        }
+    }
+
+    private static void assertThrows(Class<? extends Throwable> expected, RpcServiceMethod serviceMethod, Object[] parameters) throws Throwable {
+        try {
+            serviceMethod.invoke(parameters);
+        } catch (Throwable e) {
+            if (expected.isInstance(e)) {
+                return;
+            }
+            throw e;
+        }
+        throw new AssertionError("expected " + expected.getSimpleName());
+    }
+
+}
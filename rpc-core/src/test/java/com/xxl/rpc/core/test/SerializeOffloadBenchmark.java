@@ -0,0 +1,120 @@
+package com.xxl.rpc.core.test;
+
+import com.xxl.rpc.core.remoting.invoker.RpcInvokerFactory;
+import com.xxl.rpc.core.remoting.invoker.reference.RpcReferenceBean;
+import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
+import com.xxl.rpc.core.serialize.impl.JavaSerializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * latency of small calls, while large calls (costly to serialize) share the same connection and io thread
+ *
+ *      inline: small calls wait behind large bodies serialized / deserialized on the io thread;
+ *      offloadSerialize: io thread only frames and writes bytes, small calls stay fast;
+ *      run as main; numbers are for comparison only, not a JMH report
+ */
+public class SerializeOffloadBenchmark {
+
+    public interface DemoService {
+        String ping(String name);
+        List<String> echo(List<String> data);
+    }
+    public static class DemoServiceImpl implements DemoService {
+        @Override
+        public String ping(String name) {
+            return name;
+        }
+        @Override
+        public List<String> echo(List<String> data) {
+            return data;
+        }
+    }
+
+    private static final int LARGE_ITEMS = 50000;
+    private static final int LARGE_THREADS = 4;
+    private static final long DURATION = 5000;
+
+    public static void main(String[] args) throws Exception {
+        int port = 17600;
+        for (boolean offloadSerialize : new boolean[]{false, true, false, true}) {
+            run(offloadSerialize, port++);
+        }
+        System.exit(0);
+    }
+
+    private static void run(boolean offloadSerialize, int port) throws Exception {
+        // provider, single io thread
+        RpcProviderFactory providerFactory = new RpcProviderFactory()
+                .setSerializer(JavaSerializer.class)
+                .setPort(port)
+                .setWorkerThreads(1)
+                .setOffloadSerialize(offloadSerialize);
+        providerFactory.addService(DemoService.class.getName(), null, new DemoServiceImpl());
+        providerFactory.start();
+        Thread.sleep(500);
+
+        RpcInvokerFactory invokerFactory = new RpcInvokerFactory();
+        invokerFactory.start();
+        final DemoService demoService = (DemoService) new RpcReferenceBean()
+                .setSerializer(JavaSerializer.class)
+                .setIface(DemoService.class)
+                .setAddress("127.0.0.1:" + port)
+                .setTimeout(10000)
+                .setOffloadSerialize(offloadSerialize)
+                .setInvokerFactory(invokerFactory)
+                .getObject();
+
+        // large calls, background
+        final List<String> largeData = new ArrayList<>();
+        for (int i = 0; i < LARGE_ITEMS; i++) {
+            largeData.add("item-" + i);
+        }
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong largeCount = new AtomicLong();
+        List<Thread> largeThreads = new ArrayList<>();
+        for (int i = 0; i < LARGE_THREADS; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (running.get()) {
+                        demoService.echo(largeData);
+                        largeCount.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            largeThreads.add(thread);
+        }
+
+        // small calls, measured
+        demoService.ping("warmup");
+        long[] latency = new long[1000000];
+        int count = 0;
+        long end = System.currentTimeMillis() + DURATION;
+        while (System.currentTimeMillis() < end && count < latency.length) {
+            long start = System.nanoTime();
+            demoService.ping("jack");
+            latency[count++] = System.nanoTime() - start;
+        }
+
+        running.set(false);
+        for (Thread thread : largeThreads) {
+            thread.join();
+        }
+        invokerFactory.stop();
+        providerFactory.stop();
+
+        long[] sorted = Arrays.copyOf(latency, count);
+        Arrays.sort(sorted);
+        System.out.println(String.format("offloadSerialize=%s: small calls %d, p50 %.2f ms, p99 %.2f ms, max %.2f ms; large calls %d",
+                offloadSerialize, count,
+                sorted[count / 2] / 1e6, sorted[(int) (count * 0.99)] / 1e6, sorted[count - 1] / 1e6,
+                largeCount.get()));
+    }
+
+}
@@ -1,10 +1,18 @@
 package com.xxl.rpc.core.test;
 
+import com.xxl.rpc.core.remoting.net.params.RpcRequest;
+import com.xxl.rpc.core.remoting.net.params.RpcResponse;
 import com.xxl.rpc.core.serialize.Serializer;
+import com.xxl.rpc.core.serialize.impl.CompactSerializer;
+import com.xxl.rpc.core.serialize.impl.JavaConnectionSerializer;
 import com.xxl.rpc.core.serialize.impl.JavaSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * @author mzj 2015-10-30 21:02:55
@@ -22,6 +30,73 @@ public class SerializerTest {
         } catch (Exception e) {
             e.printStackTrace();
         }
+
+        // request / response, compare with java
+        Serializer compactSerializer = CompactSerializer.class.newInstance();
+        for (Serializer item : new Serializer[]{serializer, compactSerializer}) {
+            RpcRequest request = new RpcRequest();
+            request.setRequestId(1);
+            request.setCreateMillisTime(System.currentTimeMillis());
+            request.setClassName("com.xxl.rpc.sample.api.DemoService");
+            request.setMethodName("sayHi");
+            request.setParameterTypes(new Class[]{String.class, int.class, Map.class});
+            request.setParameters(new Object[]{"jack", 18, new HashMap<String, String>()});
+
+            RpcResponse response = new RpcResponse();
+            response.setRequestId(request.getRequestId());
+            response.setResult(new Item("jack", 18, new Item("rose", 17, null)));
+
+            byte[] requestBytes = item.serialize(request);
+            byte[] responseBytes = item.serialize(response);
+            System.out.println(item.getClass().getSimpleName() + ", request bytes = " + requestBytes.length + ", response bytes = " + responseBytes.length);
+            System.out.println(item.deserialize(requestBytes, RpcRequest.class));
+            System.out.println(item.deserialize(responseBytes, RpcResponse.class));
+        }
+
+        // collection type kept, comparator of TreeMap field
+        Holder holder = new Holder();
+        holder.scores = new TreeMap<String, Integer>(Collections.<String>reverseOrder());
+        holder.scores.put("a", 1);
+        holder.scores.put("b", 2);
+        Holder holderCopy = (Holder) compactSerializer.deserialize(compactSerializer.serialize(holder), Holder.class);
+        System.out.println("CompactSerializer, TreeMap field = " + holderCopy.scores + ", comparator = " + holderCopy.scores.comparator());
+
+        // connection dictionary, class descriptors only sent by the first message
+        Serializer writeSerializer = new JavaConnectionSerializer().forConnection();
+        Serializer readSerializer = new JavaConnectionSerializer().forConnection();
+        for (int i = 0; i < 3; i++) {
+            RpcResponse response = new RpcResponse();
+            response.setRequestId(i + 1);
+            response.setResult(new Item("jack", i, null));
+
+            ByteBuf buf = Unpooled.buffer();
+            writeSerializer.serialize(response, buf);
+            int size = buf.readableBytes();
+            System.out.println("JavaConnectionSerializer, message " + i + " bytes = " + size + ", " + readSerializer.deserialize(buf, RpcResponse.class));
+        }
+    }
+
+    public static class Holder implements java.io.Serializable {
+        private TreeMap<String, Integer> scores;
+    }
+
+    public static class Item implements java.io.Serializable {
+        private String name;
+        private int age;
+        private Item friend;
+
+        public Item() {
+        }
+        public Item(String name, int age, Item friend) {
+            this.name = name;
+            this.age = age;
+            this.friend = friend;
+        }
+
+        @Override
+        public String toString() {
+            return "Item{name=" + name + ", age=" + age + ", friend=" + friend + "}";
+        }
     }
 
 }
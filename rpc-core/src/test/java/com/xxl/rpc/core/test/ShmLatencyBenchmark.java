@@ -0,0 +1,88 @@
+package com.xxl.rpc.core.test;
+
+import com.xxl.rpc.core.remoting.invoker.RpcInvokerFactory;
+import com.xxl.rpc.core.remoting.invoker.reference.RpcReferenceBean;
+import com.xxl.rpc.core.remoting.net.Client;
+import com.xxl.rpc.core.remoting.net.Server;
+import com.xxl.rpc.core.remoting.net.impl.netty.client.NettyClient;
+import com.xxl.rpc.core.remoting.net.impl.netty.server.NettyServer;
+import com.xxl.rpc.core.remoting.net.impl.shm.client.ShmClient;
+import com.xxl.rpc.core.remoting.net.impl.shm.server.ShmServer;
+import com.xxl.rpc.core.remoting.provider.RpcProviderFactory;
+import com.xxl.rpc.core.serialize.impl.CompactSerializer;
+
+import java.util.Arrays;
+
+/**
+ * round trip latency of small sequential calls, tcp (NettyClient, loopback) vs shm (ShmClient)
+ *
+ *      provider and consumer in one jvm here; across processes the shm path is the same (mapped file);
+ *      run as main; numbers are for comparison only, not a JMH report
+ */
+public class ShmLatencyBenchmark {
+
+    public interface DemoService {
+        String ping(String name);
+    }
+    public static class DemoServiceImpl implements DemoService {
+        @Override
+        public String ping(String name) {
+            return name;
+        }
+    }
+
+    private static final int WARMUP = 20000;
+    private static final int CALLS = 100000;
+
+    public static void main(String[] args) throws Exception {
+        int port = 17700;
+        for (int i = 0; i < 2; i++) {
+            run(NettyServer.class, NettyClient.class, port++);
+            run(ShmServer.class, ShmClient.class, port++);
+        }
+        System.exit(0);
+    }
+
+    private static void run(Class<? extends Server> server, Class<? extends Client> client, int port) throws Exception {
+        RpcProviderFactory providerFactory = new RpcProviderFactory()
+                .setServer(server)
+                .setSerializer(CompactSerializer.class)
+                .setPort(port);
+        providerFactory.addService(DemoService.class.getName(), null, new DemoServiceImpl());
+        providerFactory.start();
+        Thread.sleep(500);
+
+        RpcInvokerFactory invokerFactory = new RpcInvokerFactory();
+        invokerFactory.start();
+        DemoService demoService = (DemoService) new RpcReferenceBean()
+                .setClient(client)
+                .setSerializer(CompactSerializer.class)
+                .setIface(DemoService.class)
+                .setAddress("127.0.0.1:" + port)
+                .setTimeout(10000)
+                .setInvokerFactory(invokerFactory)
+                .getObject();
+
+        for (int i = 0; i < WARMUP; i++) {
+            demoService.ping("warmup");
+        }
+        long[] latency = new long[CALLS];
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            long callStart = System.nanoTime();
+            demoService.ping("jack");
+            latency[i] = System.nanoTime() - callStart;
+        }
+        long cost = System.nanoTime() - start;
+
+        invokerFactory.stop();
+        providerFactory.stop();
+
+        Arrays.sort(latency);
+        System.out.println(String.format("%s: calls %d, p50 %.1f us, p99 %.1f us, p99.9 %.1f us, throughput %.0f/s",
+                client.getSimpleName(), CALLS,
+                latency[CALLS / 2] / 1e3, latency[(int) (CALLS * 0.99)] / 1e3, latency[(int) (CALLS * 0.999)] / 1e3,
+                CALLS / (cost / 1e9)));
+    }
+
+}
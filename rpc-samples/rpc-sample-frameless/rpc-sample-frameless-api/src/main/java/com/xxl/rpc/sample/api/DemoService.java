@@ -2,6 +2,8 @@ package com.xxl.rpc.sample.api;
 
 import com.xxl.rpc.sample.api.dto.UserDTO;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Demo API
  */
@@ -9,4 +11,6 @@ public interface DemoService {
 
 	public UserDTO sayHi(String name);
 
+	public CompletableFuture<UserDTO> sayHiAsync(String name);
+
 }
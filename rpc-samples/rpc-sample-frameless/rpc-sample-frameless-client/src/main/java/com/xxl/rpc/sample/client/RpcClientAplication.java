@@ -29,6 +29,7 @@ public class RpcClientAplication {
         testFUTURE();
         testCALLBACK();
         testONEWAY();
+        testCOMPLETABLE_FUTURE();
 
         TimeUnit.SECONDS.sleep(2);
 
@@ -157,4 +158,33 @@ public class RpcClientAplication {
         demoService.sayHi("[ONEWAY]jack");
     }
 
+
+    /**
+     * CompletableFuture return type, any callType
+     */
+    public static void testCOMPLETABLE_FUTURE() throws Exception {
+        // client
+        RpcReferenceBean referenceBean = new RpcReferenceBean()
+                .setClient(NettyClient.class)
+                .setSerializer(JavaSerializer.class)
+                .setLoadBalance(LoadBalance.ROUND)
+                .setIface(DemoService.class)
+                .setVersion(null)
+                .setTimeout(500)
+                .setAddress("127.0.0.1:7080")
+                .setAccessToken(null)
+                .setInvokerFactory(null);
+
+        DemoService demoService = (DemoService) referenceBean.getObject();
+
+        // test
+        demoService.sayHiAsync("[COMPLETABLE_FUTURE]jack").whenComplete((userDTO, exception) -> {
+            if (exception != null) {
+                exception.printStackTrace();
+            } else {
+                System.out.println(userDTO);
+            }
+        });
+    }
+
 }
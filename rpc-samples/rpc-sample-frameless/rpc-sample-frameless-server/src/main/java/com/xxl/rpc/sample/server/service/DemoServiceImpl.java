@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.text.MessageFormat;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author mzj
@@ -27,4 +28,9 @@ public class DemoServiceImpl implements DemoService {
 		return userDTO;
 	}
 
+	@Override
+	public CompletableFuture<UserDTO> sayHiAsync(String name) {
+		return CompletableFuture.completedFuture(sayHi(name));
+	}
+
 }